@@ -0,0 +1,247 @@
+package com.nicky.vaulty;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.util.Log;
+
+import com.nicky.vaulty.apps.LabelMemo;
+import com.nicky.vaulty.perf.PerfStats;
+import com.nicky.vaulty.task.CancelToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 应用元数据加载器
+ * 版本、安装时间等字段直接取自一次 getInstalledPackages / getPackageInfo 得到的 PackageInfo，
+ * 耗时的名称和图标解析分摊到插件持有的有界线程池中并行执行，结果按输入顺序写入预分配的数组
+ */
+class AppMetadataLoader {
+    private static final String TAG = "AppMetadataLoader";
+
+    static final int FIELD_VERSION = 1;
+    static final int FIELD_LABEL = 1 << 1;
+    static final int FIELD_ICON = 1 << 2;
+
+    private static final int MAX_WORKERS = 4;
+
+    /**
+     * 根据系统名称决定展示名称
+     */
+    interface NameResolver {
+        String resolve(String packageName, String systemLabel);
+    }
+
+    /**
+     * 生成图标（base64 或缓存文件地址）
+     */
+    interface IconProvider {
+        String getIcon(PackageManager packageManager, PackageInfo packageInfo);
+    }
+
+    /**
+     * 单个应用的元数据
+     */
+    static class AppMetadata {
+        final PackageInfo packageInfo;
+        String appName;
+        String icon;
+        // 成功解析的字段，FIELD_* 的组合
+        int resolvedFields;
+
+        AppMetadata(PackageInfo packageInfo) {
+            this.packageInfo = packageInfo;
+        }
+
+        String getPackageName() {
+            return packageInfo.packageName;
+        }
+
+        String getVersionName() {
+            return packageInfo.versionName;
+        }
+
+        long getVersionCode() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                return packageInfo.getLongVersionCode();
+            }
+            return packageInfo.versionCode;
+        }
+
+        boolean isSystemApp() {
+            ApplicationInfo appInfo = packageInfo.applicationInfo;
+            return appInfo != null && (appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final PackageManager packageManager;
+    private final NameResolver nameResolver;
+    private final IconProvider iconProvider;
+    private final LabelMemo labelMemo;
+    private final String locale;
+    private final PerfStats perfStats;
+
+    /**
+     * @param executor 由调用方持有并复用的线程池，见 newExecutor
+     */
+    AppMetadataLoader(ExecutorService executor, PackageManager packageManager, NameResolver nameResolver,
+                      IconProvider iconProvider, LabelMemo labelMemo, String locale, PerfStats perfStats) {
+        this.executor = executor;
+        this.packageManager = packageManager;
+        this.nameResolver = nameResolver;
+        this.iconProvider = iconProvider;
+        this.labelMemo = labelMemo;
+        this.locale = locale;
+        this.perfStats = perfStats;
+    }
+
+    /**
+     * 创建加载用的线程池，最多 {@value #MAX_WORKERS} 个线程，空闲一段时间后线程会退出
+     */
+    static ThreadPoolExecutor newExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), runnable -> {
+                    Thread thread = new Thread(runnable, "AppMetadata-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 一次性获取全部已安装应用的 PackageInfo
+     */
+    List<PackageInfo> getInstalledPackages() {
+        try (PerfStats.Phase ignored = perfStats.phase("apps.getInstalledPackages")) {
+            return packageManager.getInstalledPackages(0);
+        }
+    }
+
+    /**
+     * 按包名获取 PackageInfo，找不到的包会被跳过
+     */
+    List<PackageInfo> getPackages(List<String> packageNames) {
+        List<PackageInfo> packages = new ArrayList<>(packageNames.size());
+        for (String packageName : packageNames) {
+            try (PerfStats.Phase ignored = perfStats.phase("apps.getPackageInfo")) {
+                packages.add(packageManager.getPackageInfo(packageName, 0));
+            } catch (PackageManager.NameNotFoundException e) {
+                Log.w(TAG, "应用未找到: " + packageName);
+            }
+        }
+        return packages;
+    }
+
+    /**
+     * 并行加载元数据，返回数组与输入顺序一致
+     * 单个应用加载失败不影响其余应用；取消或中断后不再领取新的应用，未加载的位置为 null
+     * 所有工作线程结束后才返回，不会在返回后继续写入结果数组
+     */
+    AppMetadata[] load(List<PackageInfo> packages, boolean includeIcons, CancelToken token) {
+        final AppMetadata[] results = new AppMetadata[packages.size()];
+        int workers = Math.min(Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors()),
+                Math.max(1, packages.size()));
+
+        if (workers <= 1) {
+            for (int i = 0; i < results.length && !token.isCancelled(); i++) {
+                results[i] = loadSafely(packages.get(i), includeIcons);
+            }
+            return results;
+        }
+
+        // 工作线程从共享下标中领取任务，处理快的线程会多处理一些应用
+        final AtomicInteger nextIndex = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            futures.add(executor.submit(() -> {
+                int index;
+                while (!token.isCancelled() && (index = nextIndex.getAndIncrement()) < results.length) {
+                    results[index] = loadSafely(packages.get(index), includeIcons);
+                }
+            }));
+        }
+
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // 被中断后让其余工作线程停止领取，但仍等待正在加载的应用完成
+                    if (!interrupted) {
+                        Log.w(TAG, "加载应用元数据被中断");
+                    }
+                    interrupted = true;
+                    nextIndex.set(results.length);
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Error loading app metadata", e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return results;
+    }
+
+    /**
+     * 加载单个应用，出错时记录日志，返回只含 PackageInfo 字段、以包名为名称的元数据，
+     * 增量查询推进令牌后该应用仍会出现在结果中
+     */
+    private AppMetadata loadSafely(PackageInfo packageInfo, boolean includeIcon) {
+        try {
+            return loadOne(packageInfo, includeIcon);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error loading app metadata: " + packageInfo.packageName, e);
+            AppMetadata metadata = new AppMetadata(packageInfo);
+            metadata.resolvedFields = FIELD_VERSION;
+            metadata.appName = packageInfo.packageName;
+            return metadata;
+        }
+    }
+
+    AppMetadata loadOne(PackageInfo packageInfo, boolean includeIcon) {
+        AppMetadata metadata = new AppMetadata(packageInfo);
+        metadata.resolvedFields |= FIELD_VERSION;
+
+        // 应用未更新且语言未变时直接使用缓存的系统名称，跳过 getApplicationLabel
+        String systemLabel = labelMemo.get(packageInfo.packageName, packageInfo.lastUpdateTime, locale);
+        if (systemLabel != null) {
+            metadata.resolvedFields |= FIELD_LABEL;
+            perfStats.increment("apps.labelMemoHits", 1);
+        } else if (packageInfo.applicationInfo != null) {
+            try (PerfStats.Phase ignored = perfStats.phase("apps.getApplicationLabel")) {
+                systemLabel = packageManager.getApplicationLabel(packageInfo.applicationInfo).toString();
+                metadata.resolvedFields |= FIELD_LABEL;
+                labelMemo.put(packageInfo.packageName, packageInfo.lastUpdateTime, locale, systemLabel);
+            } catch (Exception e) {
+                Log.w(TAG, "Error loading label: " + packageInfo.packageName, e);
+            }
+        }
+        metadata.appName = nameResolver.resolve(packageInfo.packageName, systemLabel);
+
+        if (includeIcon && packageInfo.applicationInfo != null) {
+            try (PerfStats.Phase ignored = perfStats.phase("apps.icon")) {
+                metadata.icon = iconProvider.getIcon(packageManager, packageInfo);
+            }
+            if (metadata.icon != null) {
+                metadata.resolvedFields |= FIELD_ICON;
+            }
+        }
+        return metadata;
+    }
+}
@@ -1,18 +1,17 @@
 package com.nicky.vaulty;
 
-import android.app.AppOpsManager;
 import android.app.usage.UsageEvents;
 import android.app.usage.UsageStatsManager;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.ApplicationInfo;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.drawable.BitmapDrawable;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Trace;
 import android.graphics.drawable.Drawable;
-import android.os.Build;
-import android.os.Process;
 import android.provider.Settings;
 import android.util.Base64;
 import android.util.Log;
@@ -23,19 +22,126 @@ import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
+import com.nicky.vaulty.apps.DisplayNameResolver;
+import com.nicky.vaulty.apps.LabelMemo;
+import com.nicky.vaulty.icon.IconDiskCache;
+import com.nicky.vaulty.icon.IconRenderer;
+import com.nicky.vaulty.journal.EventJournal;
+import com.nicky.vaulty.perf.LatencyHistogram;
+import com.nicky.vaulty.perf.PerfStats;
+import com.nicky.vaulty.task.CancelToken;
+import com.nicky.vaulty.task.RequestScheduler;
+import com.nicky.vaulty.usage.CompactEventEncoder;
+import com.nicky.vaulty.usage.EventFilter;
+import com.nicky.vaulty.usage.EventJson;
+import com.nicky.vaulty.usage.EventPager;
+import com.nicky.vaulty.usage.EventTypes;
+import com.nicky.vaulty.usage.EventWindowCache;
+import com.nicky.vaulty.usage.ForegroundTracker;
+import com.nicky.vaulty.usage.HourlyAggregator;
+import com.nicky.vaulty.usage.PackageDictionary;
+import com.nicky.vaulty.usage.SessionBuilder;
+import com.nicky.vaulty.usage.SlicedScanner;
+import com.nicky.vaulty.usage.TimeRanges;
+import com.nicky.vaulty.usage.UsageRollups;
+import com.nicky.vaulty.usage.UsageSession;
 
 import org.json.JSONException;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
 
 @CapacitorPlugin(name = "AppUsage")
 public class AppUsagePlugin extends Plugin {
     private static final String TAG = "AppUsagePlugin";
     private static final int REQUEST_USAGE_ACCESS = 123;
+    private static final int DEFAULT_STREAM_BATCH_SIZE = 500;
+    private static final String EVENT_USAGE_EVENTS_BATCH = "usageEventsBatch";
+    private static final String EVENT_FOREGROUND_CHANGED = "foregroundChanged";
+    private static final String EVENT_FOREGROUND_TICK = "foregroundTick";
+    private static final String EVENT_BACKFILL_PROGRESS = "backfillProgress";
+    private static final String EVENT_BACKFILL_BATCH = "backfillBatch";
+    private static final long DEFAULT_WATCH_INTERVAL = 5000;
+    private static final long MIN_WATCH_INTERVAL = 1000;
+    private static final long DEFAULT_WATCH_DEBOUNCE = 2000;
+    // 开始监听时回看的范围，用于确定当前前台应用
+    private static final long WATCH_LOOKBACK = 60L * 60 * 1000;
+    private static final String FORMAT_COMPACT = "compact";
+    private static final String ICON_MODE_FILE = "file";
+    private static final String ICON_CACHE_DIR = "app_icons";
+    // 所有尺寸和格式的图标缓存目录共用的大小上限
+    private static final long ICON_CACHE_MAX_BYTES = 20L * 1024 * 1024;
+    private static final int MAX_ICON_SIZE = 512;
+    private static final int DEFAULT_ICON_QUALITY = 80;
+    // 应用名称映射表：内置于 assets，filesDir 下的同名文件可覆盖或扩展
+    private static final String DISPLAY_NAMES_FILE = "app_display_names.properties";
+    private static final String LABEL_MEMO_FILE = "app_labels.memo";
+    private static final String SOURCE_JOURNAL = "journal";
+    // 已结束小时的事件缓存上限；整点后 1 分钟内上一小时仍按进行中处理，避免缓存系统尚未写完的事件
+    private static final long EVENT_CACHE_MAX_BYTES = 8L * 1024 * 1024;
+    private static final long EVENT_CACHE_SETTLE_MILLIS = 60L * 1000;
+    // 分页读取时每次只扫描从续传位置开始的一段时间，页未满时窗口翻倍，最大一天
+    private static final long PAGE_SCAN_WINDOW = 60L * 60 * 1000;
+    private static final long MAX_PAGE_SCAN_WINDOW = 24L * 60 * 60 * 1000;
+    // 耗时调用的工作线程数；插件线程只做参数检查和轻量调用
+    private static final int WORKER_THREADS = 2;
+    private static final String OPTION_REQUEST_ID = "requestId";
+    private static final String OPTION_PRIORITY = "priority";
+
+    private final Map<String, IconDiskCache> iconCaches = new HashMap<>();
+    private boolean iconCachesScanned = false;
+    private PackageChangeTracker packageChangeTracker;
+    private DisplayNameResolver displayNameResolver;
+    private LabelMemo labelMemo;
+    private EventWindowCache eventCache;
+    private ForegroundWatch foregroundWatch;
+    // 应用元数据加载共用的有界线程池，所有调用复用
+    private ExecutorService metadataExecutor;
+    private final RequestScheduler<JSObject> scheduler = new RequestScheduler<>(WORKER_THREADS, "AppUsageWorker");
+    // 系统时间或时区被修改后，已缓存的窗口和“已结束”的判断都不再可靠
+    private final BroadcastReceiver timeChangeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            clearEventCache();
+        }
+    };
+
+    // 各方法的调用次数、耗时分布和计数器，同时写入 systrace 区段便于在 Perfetto 中对照
+    private final PerfStats perfStats = new PerfStats(new PerfStats.Tracer() {
+        @Override
+        public void beginSection(String name) {
+            Trace.beginSection(name);
+        }
+
+        @Override
+        public void endSection() {
+            Trace.endSection();
+        }
+    });
+
+    @Override
+    public void load() {
+        // 已有权限时注册后台采集任务，WebView 未启动时也能持续汇总
+        if (checkUsageStatsPermission()) {
+            UsageCollector.schedule(getContext(), UsageCollector.DEFAULT_INTERVAL);
+        }
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        getContext().registerReceiver(timeChangeReceiver, filter);
+    }
 
     @PluginMethod
     public void hasUsagePermission(PluginCall call) {
@@ -45,6 +151,157 @@ public class AppUsagePlugin extends Plugin {
         call.resolve(result);
     }
 
+    /**
+     * 返回自启动或上次重置以来的性能统计，耗时单位为毫秒
+     */
+    @PluginMethod
+    public void getPerfStats(PluginCall call) {
+        JSObject counters = new JSObject();
+        for (Map.Entry<String, Long> entry : perfStats.getCounters().entrySet()) {
+            counters.put(entry.getKey(), (long) entry.getValue());
+        }
+        // 事件缓存的当前占用
+        counters.put("eventCache.bytes", getEventCache().getSizeBytes());
+        counters.put("eventCache.windows", getEventCache().getWindowCount());
+        // 调度器当前排队和执行中的请求数
+        counters.put("scheduler.queued", scheduler.getQueuedCount());
+        counters.put("scheduler.running", scheduler.getRunningCount());
+
+        JSObject histograms = new JSObject();
+        for (Map.Entry<String, LatencyHistogram> entry : perfStats.getHistograms().entrySet()) {
+            histograms.put(entry.getKey(), createHistogramObject(entry.getValue()));
+        }
+
+        JSObject result = new JSObject();
+        result.put("since", perfStats.getSinceMillis());
+        result.put("counters", counters);
+        result.put("histograms", histograms);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void resetPerfStats(PluginCall call) {
+        perfStats.reset();
+        call.resolve();
+    }
+
+    private static JSObject createHistogramObject(LatencyHistogram histogram) {
+        JSObject result = new JSObject();
+        result.put("count", histogram.getCount());
+        result.put("totalMs", nanosToMillis(histogram.getTotalNanos()));
+        result.put("maxMs", nanosToMillis(histogram.getMaxNanos()));
+        result.put("p50Ms", nanosToMillis(histogram.percentileNanos(0.5)));
+        result.put("p95Ms", nanosToMillis(histogram.percentileNanos(0.95)));
+        result.put("p99Ms", nanosToMillis(histogram.percentileNanos(0.99)));
+        return result;
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * 取消 requestIds 中仍在排队或执行的请求，被取消的调用以 CANCELLED 拒绝
+     * 返回实际取消的数量，已结束或不存在的请求被忽略
+     */
+    @PluginMethod
+    public void cancelRequests(PluginCall call) {
+        List<String> requestIds;
+        try {
+            requestIds = getStringList(call, "requestIds");
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        if (requestIds == null) {
+            call.reject("需要提供 requestIds");
+            return;
+        }
+
+        int cancelled = 0;
+        for (String requestId : requestIds) {
+            if (scheduler.cancel(requestId)) {
+                cancelled++;
+            }
+        }
+        perfStats.increment("scheduler.cancelled", cancelled);
+
+        JSObject result = new JSObject();
+        result.put("cancelled", cancelled);
+        call.resolve(result);
+    }
+
+    /**
+     * 把耗时调用交给工作线程执行，插件线程立即返回，权限检查等轻量调用不会排在它后面
+     * 参数 requestId 用于 cancelRequests，priority（high / normal / low）覆盖默认优先级；
+     * deduplicate 为 true 时参数完全相同的进行中调用合并为一次执行
+     */
+    private void schedule(PluginCall call, RequestScheduler.Priority defaultPriority, boolean deduplicate,
+                          RequestScheduler.Task<JSObject> task) {
+        RequestScheduler.Priority priority = defaultPriority;
+        String priorityName = call.getString(OPTION_PRIORITY);
+        if (priorityName != null) {
+            try {
+                priority = RequestScheduler.Priority.valueOf(priorityName.toUpperCase(Locale.US));
+            } catch (IllegalArgumentException e) {
+                call.reject("未知的优先级: " + priorityName);
+                return;
+            }
+        }
+
+        final String method = call.getMethodName();
+        final long submitted = System.nanoTime();
+        RequestScheduler.Responder<JSObject> responder = new RequestScheduler.Responder<JSObject>() {
+            @Override
+            public void resolve(JSObject result) {
+                call.resolve(result);
+            }
+
+            @Override
+            public void reject(String message, String code) {
+                if (code != null) {
+                    call.reject(message, code);
+                } else {
+                    call.reject(message);
+                }
+            }
+        };
+        try {
+            boolean joined = scheduler.submit(call.getString(OPTION_REQUEST_ID),
+                    deduplicate ? createRequestKey(call) : null, priority, (token, out) -> {
+                        perfStats.record(method + ".queued", System.nanoTime() - submitted);
+                        task.run(token, out);
+                    }, responder);
+            if (joined) {
+                perfStats.increment("scheduler.deduplicated", 1);
+            }
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+        }
+    }
+
+    /**
+     * 合并键：方法名加按名称排序的参数，不包括 requestId 和 priority
+     */
+    private static String createRequestKey(PluginCall call) {
+        JSObject data = call.getData();
+        List<String> names = new ArrayList<>();
+        Iterator<String> iterator = data.keys();
+        while (iterator.hasNext()) {
+            String name = iterator.next();
+            if (!OPTION_REQUEST_ID.equals(name) && !OPTION_PRIORITY.equals(name)) {
+                names.add(name);
+            }
+        }
+        Collections.sort(names);
+
+        StringBuilder key = new StringBuilder(call.getMethodName());
+        for (String name : names) {
+            key.append('\n').append(name).append('=').append(data.opt(name));
+        }
+        return key.toString();
+    }
+
     @PluginMethod
     public void requestUsagePermission(PluginCall call) {
         if (checkUsageStatsPermission()) {
@@ -71,373 +328,1301 @@ public class AppUsagePlugin extends Plugin {
             }
 
             boolean hasPermission = checkUsageStatsPermission();
+            if (hasPermission) {
+                UsageCollector.schedule(getContext(), UsageCollector.DEFAULT_INTERVAL);
+            }
             JSObject result = new JSObject();
             result.put("value", hasPermission);
             savedCall.resolve(result);
         }
     }
 
+    /**
+     * 查询应用使用事件
+     * 传入 pageSize 时按页返回，结果中的 nextCursor 作为下一次调用的 cursor 参数
+     */
     @PluginMethod
     public void queryEvents(PluginCall call) {
         if (!checkUsageStatsPermission()) {
             call.reject("权限不足，无法访问使用情况数据");
             return;
         }
+        schedule(call, RequestScheduler.Priority.NORMAL, true, (token, out) -> {
+            try (PerfStats.Phase ignored = perfStats.phase("queryEvents")) {
+                queryFilteredEvents(call, token, out, "queryEvents", false);
+            }
+        });
+    }
 
-        long startTime = call.getLong("startTime");
-        long endTime = call.getLong("endTime");
+    /**
+     * 流式查询应用使用事件
+     * 扫描过程中每凑满 batchSize 个事件就通过 usageEventsBatch 事件推送一批，
+     * 扫描结束后返回事件总数；批次与 streamId 绑定，因此不合并相同的调用
+     */
+    @PluginMethod
+    public void streamEvents(PluginCall call) {
+        if (!checkUsageStatsPermission()) {
+            call.reject("权限不足，无法访问使用情况数据");
+            return;
+        }
+        schedule(call, RequestScheduler.Priority.LOW, false, (token, out) -> streamEvents(call, token, out));
+    }
 
-        UsageStatsManager usageStatsManager = (UsageStatsManager) getContext()
-                .getSystemService(Context.USAGE_STATS_SERVICE);
+    private void streamEvents(PluginCall call, CancelToken token, RequestScheduler.Responder<JSObject> out) {
+        try (PerfStats.Phase ignored = perfStats.phase("streamEvents")) {
+            long startTime = call.getLong("startTime");
+            long endTime = call.getLong("endTime");
+            int batchSize = call.getInt("batchSize", DEFAULT_STREAM_BATCH_SIZE);
+            if (batchSize <= 0) {
+                out.reject("batchSize 必须大于 0");
+                return;
+            }
+            String streamId = call.getString("streamId", call.getCallbackId());
+            final EventFilter filter;
+            try {
+                filter = createEventFilter(call);
+            } catch (IllegalArgumentException e) {
+                out.reject(e.getMessage());
+                return;
+            }
+            final int fields = filter.getFields();
 
-        UsageEvents usageEvents = usageStatsManager.queryEvents(startTime, endTime);
-        UsageEvents.Event event = new UsageEvents.Event();
+            final JSArray[] batch = {new JSArray()};
+            // 批次序号、事件总数、扫描数
+            final int[] counts = new int[3];
 
-        JSObject result = new JSObject();
-        JSArray eventsArray = new JSArray();
+            scanSystemEvents(startTime, endTime, token.wrap((timestamp, packageName, className, eventType) -> {
+                counts[2]++;
+                if (!filter.accepts(packageName, eventType)) {
+                    return true;
+                }
+
+                batch[0].put(EventJson.toJson(packageName, className, timestamp, eventType, fields));
+                counts[1]++;
+
+                if (batch[0].length() >= batchSize) {
+                    notifyEventsBatch(streamId, counts[0]++, batch[0], false);
+                    batch[0] = new JSArray();
+                }
+                return true;
+            }));
+            if (token.isCancelled()) {
+                // 调用已被拒绝，不再推送最后一批
+                return;
+            }
+            // 最后一批（可能为空）带上 done 标记
+            notifyEventsBatch(streamId, counts[0]++, batch[0], true);
+            perfStats.increment("streamEvents.scanned", counts[2]);
+            perfStats.increment("streamEvents.emitted", counts[1]);
+
+            JSObject result = new JSObject();
+            result.put("streamId", streamId);
+            result.put("eventCount", counts[1]);
+            result.put("batchCount", counts[0]);
+            out.resolve(result);
+        }
+    }
+
+    /**
+     * 读取查询参数中的过滤条件：packageNames、excludePackageNames、eventTypes、fields
+     * @throws IllegalArgumentException 参数格式错误或名称未知
+     */
+    private static EventFilter createEventFilter(PluginCall call) {
+        return EventFilter.of(getStringList(call, "packageNames"), getStringList(call, "excludePackageNames"),
+                getStringList(call, "eventTypes"), getStringList(call, "fields"));
+    }
+
+    private static List<String> getStringList(PluginCall call, String key) {
+        JSArray array = call.getArray(key);
+        if (array == null) {
+            return null;
+        }
+        try {
+            return array.toList();
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(key + " 格式错误");
+        }
+    }
+
+    private void notifyEventsBatch(String streamId, int batchIndex, JSArray events, boolean done) {
+        JSObject data = new JSObject();
+        data.put("streamId", streamId);
+        data.put("batchIndex", batchIndex);
+        data.put("events", events);
+        data.put("done", done);
+        try (PerfStats.Phase ignored = perfStats.phase("streamEvents.notify")) {
+            notifyListeners(EVENT_USAGE_EVENTS_BATCH, data);
+        }
+    }
+
+    /**
+     * 返回结果并统计序列化和通过桥发送的耗时
+     */
+    private void resolveTimed(RequestScheduler.Responder<JSObject> out, String method, JSObject result) {
+        try (PerfStats.Phase ignored = perfStats.phase(method + ".resolve")) {
+            out.resolve(result);
+        }
+    }
+
+    private JSObject createCompactPayload(String method, CompactEventEncoder encoder) {
+        perfStats.increment(method + ".bytes", encoder.getLength());
+        JSObject payload = new JSObject();
+        payload.put("version", CompactEventEncoder.FORMAT_VERSION);
+        payload.put("count", encoder.getCount());
+        payload.put("baseTimestamp", encoder.getBaseTimestamp());
+        payload.put("packages", new JSArray(encoder.getPackages()));
+        payload.put("classes", new JSArray(encoder.getClasses()));
+        payload.put("data", Base64.encodeToString(encoder.getBuffer(), 0, encoder.getLength(), Base64.NO_WRAP));
+        return payload;
+    }
 
+    /**
+     * 开始监听前台应用：在后台线程按 intervalMs 增量读取新事件，
+     * 只通过 foregroundChanged / foregroundTick 推送变化，返回当前前台应用
+     */
+    @PluginMethod
+    public void startForegroundWatch(PluginCall call) {
+        if (!checkUsageStatsPermission()) {
+            call.reject("权限不足，无法访问使用情况数据");
+            return;
+        }
+        long interval = Math.max(MIN_WATCH_INTERVAL, call.getLong("intervalMs", DEFAULT_WATCH_INTERVAL));
+        long debounce = Math.max(0, call.getLong("debounceMs", DEFAULT_WATCH_DEBOUNCE));
+
+        synchronized (this) {
+            if (foregroundWatch != null) {
+                foregroundWatch.stop();
+            }
+            foregroundWatch = new ForegroundWatch(interval, debounce);
+            foregroundWatch.start(call);
+        }
+    }
+
+    @PluginMethod
+    public void stopForegroundWatch(PluginCall call) {
+        synchronized (this) {
+            if (foregroundWatch != null) {
+                foregroundWatch.stop();
+                foregroundWatch = null;
+            }
+        }
+        call.resolve();
+    }
+
+    // 应用进入后台时暂停轮询，回到前台后从上次读取的位置补齐
+    @Override
+    protected synchronized void handleOnPause() {
+        super.handleOnPause();
+        if (foregroundWatch != null) {
+            foregroundWatch.pause();
+        }
+    }
+
+    @Override
+    protected synchronized void handleOnResume() {
+        super.handleOnResume();
+        if (foregroundWatch != null) {
+            foregroundWatch.resume();
+        }
+    }
+
+    @Override
+    protected synchronized void handleOnDestroy() {
+        if (foregroundWatch != null) {
+            foregroundWatch.stop();
+            foregroundWatch = null;
+        }
+        // 页面已销毁，排队和执行中的请求都不再需要
+        scheduler.cancelAll();
+        getContext().unregisterReceiver(timeChangeReceiver);
+        if (metadataExecutor != null) {
+            metadataExecutor.shutdownNow();
+            metadataExecutor = null;
+        }
+        super.handleOnDestroy();
+    }
+
+    /**
+     * 前台应用监听：事件读取和状态都只在自己的线程上访问
+     */
+    private final class ForegroundWatch implements Runnable, ForegroundTracker.Listener {
+        private final long interval;
+        private final ForegroundTracker tracker;
+        private final HandlerThread thread = new HandlerThread("ForegroundWatch");
+        private final Handler handler;
+        // 已读取事件的时间终点，下次从这里继续
+        private long queryEnd;
+
+        ForegroundWatch(long interval, long debounce) {
+            this.interval = interval;
+            this.tracker = new ForegroundTracker(debounce);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+
+        void start(PluginCall call) {
+            handler.post(() -> {
+                long now = System.currentTimeMillis();
+                queryUsageEvents(now - WATCH_LOOKBACK, now, this::accept);
+                queryEnd = now;
+                tracker.startAccruing(now);
+
+                JSObject result = new JSObject();
+                result.put("packageName", tracker.getForegroundPackage());
+                result.put("since", tracker.getForegroundSince());
+                call.resolve(result);
+                handler.postDelayed(this, interval);
+            });
+        }
+
+        void pause() {
+            handler.removeCallbacks(this);
+        }
+
+        void resume() {
+            handler.removeCallbacks(this);
+            handler.post(this);
+        }
+
+        void stop() {
+            handler.removeCallbacksAndMessages(null);
+            thread.quitSafely();
+        }
+
+        private boolean accept(long timestamp, String packageName, String className, int eventType) {
+            tracker.accept(packageName, eventType, timestamp);
+            return true;
+        }
+
+        @Override
+        public void run() {
+            try (PerfStats.Phase ignored = perfStats.phase("foregroundWatch.poll")) {
+                long now = System.currentTimeMillis();
+                queryUsageEvents(queryEnd, now, this::accept);
+                queryEnd = now;
+                tracker.flush(now, this);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error polling foreground app", e);
+            }
+            handler.postDelayed(this, interval);
+        }
+
+        @Override
+        public void onForegroundChanged(String packageName, long since, String previousPackageName) {
+            JSObject data = new JSObject();
+            data.put("packageName", packageName);
+            data.put("since", since);
+            data.put("previousPackageName", previousPackageName);
+            notifyListeners(EVENT_FOREGROUND_CHANGED, data);
+        }
+
+        @Override
+        public void onDurations(long timestamp, Map<String, Long> durations) {
+            JSObject deltas = new JSObject();
+            for (Map.Entry<String, Long> entry : durations.entrySet()) {
+                deltas.put(entry.getKey(), (long) entry.getValue());
+            }
+            JSObject data = new JSObject();
+            data.put("timestamp", timestamp);
+            data.put("durations", deltas);
+            notifyListeners(EVENT_FOREGROUND_TICK, data);
+        }
+    }
+
+    /**
+     * 直接查询 UsageStatsManager，按时间顺序遍历 [startTime, endTime) 内的全部事件
+     */
+    private void queryUsageEvents(long startTime, long endTime, EventJournal.Visitor visitor) {
+        UsageStatsManager usageStatsManager = (UsageStatsManager) getContext()
+                .getSystemService(Context.USAGE_STATS_SERVICE);
+        UsageEvents usageEvents;
+        // 系统在返回前已经把全部事件通过 binder 传回，这里的耗时即 binder 查询耗时
+        try (PerfStats.Phase ignored = perfStats.phase("usageStats.queryEvents")) {
+            usageEvents = usageStatsManager.queryEvents(startTime, endTime);
+        }
+        UsageEvents.Event event = new UsageEvents.Event();
         while (usageEvents.hasNextEvent()) {
             usageEvents.getNextEvent(event);
+            if (!visitor.visit(event.getTimeStamp(), event.getPackageName(), event.getClassName(),
+                    event.getEventType())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在原生层把 RESUMED / PAUSED 事件配对为使用会话，只返回会话记录
+     */
+    @PluginMethod
+    public void querySessions(PluginCall call) {
+        // source 为 journal 时从本地事件日志读取，不需要访问系统使用情况数据
+        boolean fromJournal = SOURCE_JOURNAL.equals(call.getString("source"));
+        if (!fromJournal && !checkUsageStatsPermission()) {
+            call.reject("权限不足，无法访问使用情况数据");
+            return;
+        }
+        schedule(call, RequestScheduler.Priority.NORMAL, true,
+                (token, out) -> querySessions(call, fromJournal, token, out));
+    }
+
+    private void querySessions(PluginCall call, boolean fromJournal, CancelToken token,
+                               RequestScheduler.Responder<JSObject> out) {
+        try (PerfStats.Phase ignored = perfStats.phase("querySessions")) {
+            long startTime = call.getLong("startTime");
+            long endTime = call.getLong("endTime");
+
+            final JSArray sessionsArray = new JSArray();
+            SessionBuilder builder = new SessionBuilder(startTime, endTime,
+                    session -> sessionsArray.put(createSessionObject(session)));
 
-            // 只关注应用进入前台和退出前台的事件
-            if (event.getEventType() == UsageEvents.Event.ACTIVITY_RESUMED ||
-                    event.getEventType() == UsageEvents.Event.ACTIVITY_PAUSED) {
-
-                JSObject eventObject = new JSObject();
-                eventObject.put("packageName", event.getPackageName());
-                eventObject.put("className", event.getClassName());
-                eventObject.put("timestamp", event.getTimeStamp());
-
-                // 事件类型
-                String eventType = "";
-                if (event.getEventType() == UsageEvents.Event.ACTIVITY_RESUMED) {
-                    eventType = "ACTIVITY_RESUMED";
-                } else if (event.getEventType() == UsageEvents.Event.ACTIVITY_PAUSED) {
-                    eventType = "ACTIVITY_PAUSED";
+            try {
+                replayEvents(startTime, endTime, fromJournal, token.wrap(sessionVisitor(builder)));
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading event journal", e);
+                out.reject("读取事件日志失败: " + e.getMessage());
+                return;
+            }
+            if (token.isCancelled()) {
+                // 调度器会以 CANCELLED 拒绝调用
+                return;
+            }
+            builder.finish();
+            perfStats.increment("querySessions.sessions", builder.getSessionCount());
+
+            JSObject result = new JSObject();
+            result.put("sessions", sessionsArray);
+            resolveTimed(out, "querySessions", result);
+        }
+    }
+
+    /**
+     * 在原生层按小时 / 按应用聚合使用时长
+     * 参数为 date (YYYY-MM-DD)，或 startTime / endTime
+     */
+    @PluginMethod
+    public void queryHourlyAggregates(PluginCall call) {
+        boolean fromJournal = SOURCE_JOURNAL.equals(call.getString("source"));
+        if (!fromJournal && !checkUsageStatsPermission()) {
+            call.reject("权限不足，无法访问使用情况数据");
+            return;
+        }
+        schedule(call, RequestScheduler.Priority.NORMAL, true,
+                (token, out) -> queryHourlyAggregates(call, fromJournal, token, out));
+    }
+
+    private void queryHourlyAggregates(PluginCall call, boolean fromJournal, CancelToken token,
+                                       RequestScheduler.Responder<JSObject> out) {
+        try (PerfStats.Phase ignored = perfStats.phase("queryHourlyAggregates")) {
+            TimeZone timeZone = TimeZone.getDefault();
+            long startTime;
+            long endTime;
+            String date = call.getString("date");
+            if (date != null && !date.isEmpty()) {
+                try {
+                    long[] range = TimeRanges.dayRange(date, timeZone);
+                    startTime = range[0];
+                    endTime = range[1];
+                } catch (IllegalArgumentException e) {
+                    out.reject("日期格式错误: " + date);
+                    return;
+                }
+            } else {
+                Long start = call.getLong("startTime");
+                Long end = call.getLong("endTime");
+                if (start == null || end == null || end <= start) {
+                    out.reject("需要提供 date 或有效的 startTime / endTime");
+                    return;
                 }
-                eventObject.put("eventType", eventType);
+                startTime = start;
+                endTime = end;
+            }
+
+            HourlyAggregator aggregator = new HourlyAggregator(startTime, endTime, timeZone);
+            SessionBuilder builder = new SessionBuilder(startTime, endTime, aggregator);
+            try {
+                replayEvents(startTime, endTime, fromJournal, token.wrap(sessionVisitor(builder)));
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading event journal", e);
+                out.reject("读取事件日志失败: " + e.getMessage());
+                return;
+            }
+            if (token.isCancelled()) {
+                return;
+            }
+            builder.finish();
+
+            resolveTimed(out, "queryHourlyAggregates",
+                    buildHourlyAggregatesResult(aggregator, startTime, endTime, timeZone));
+        }
+    }
+
+    /**
+     * 按时间顺序遍历 [startTime, endTime) 内的事件，来源为系统或本地事件日志
+     */
+    private void replayEvents(long startTime, long endTime, boolean fromJournal, EventJournal.Visitor visitor)
+            throws IOException {
+        if (fromJournal) {
+            try (PerfStats.Phase ignored = perfStats.phase("eventJournal.read")) {
+                getEventJournal().read(startTime, endTime, visitor);
+            }
+            return;
+        }
+
+        scanSystemEvents(startTime, endTime, visitor);
+    }
+
+    /**
+     * 遍历系统事件：已结束的整点小时从内存缓存读取，只有进行中的尾部查询 UsageStatsManager
+     */
+    private void scanSystemEvents(long startTime, long endTime, EventJournal.Visitor visitor) {
+        EventWindowCache cache = getEventCache();
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        long closedBefore = EventWindowCache.closedBefore(System.currentTimeMillis(), EVENT_CACHE_SETTLE_MILLIS);
+        cache.read(startTime, endTime, closedBefore, this::queryUsageEvents, visitor);
+        perfStats.increment("eventCache.hitWindows", cache.getHits() - hits);
+        perfStats.increment("eventCache.loadedWindows", cache.getMisses() - misses);
+    }
+
+    private synchronized EventWindowCache getEventCache() {
+        if (eventCache == null) {
+            eventCache = new EventWindowCache(EVENT_CACHE_MAX_BYTES);
+        }
+        return eventCache;
+    }
+
+    private synchronized void clearEventCache() {
+        if (eventCache != null) {
+            eventCache.clear();
+            Log.d(TAG, "系统时间或时区已修改，清空事件缓存");
+        }
+    }
+
+    private static JSObject createSessionObject(UsageSession session) {
+        JSObject sessionObject = new JSObject();
+        sessionObject.put("packageName", session.packageName);
+        sessionObject.put("startTime", session.startTime);
+        sessionObject.put("endTime", session.endTime);
+        sessionObject.put("duration", session.getDuration());
+        sessionObject.put("clippedStart", session.clippedStart);
+        sessionObject.put("clippedEnd", session.clippedEnd);
+        return sessionObject;
+    }
 
-                eventsArray.put(eventObject);
+    /**
+     * 把会话构建器包装为事件遍历回调
+     */
+    private static EventJournal.Visitor sessionVisitor(SessionBuilder builder) {
+        return (timestamp, packageName, className, eventType) -> {
+            builder.accept(packageName, eventType, timestamp);
+            return true;
+        };
+    }
+
+    /**
+     * 长时间范围的历史回填：按 sliceMs（默认一天）切分，在有界线程池中并行查询系统事件，
+     * 按时间顺序合并后一次完成原始前台事件的收集和会话配对（跨分片的会话被正确拼接）
+     * 每合并一个分片，通过 backfillBatch 推送该分片的紧凑格式前台事件和已结束的会话，再推送 backfillProgress；
+     * 扫描结束后推送带 done 标记的最后一批，只返回计数。批次与 streamId 绑定，因此不合并相同的调用
+     */
+    @PluginMethod
+    public void backfill(PluginCall call) {
+        if (!checkUsageStatsPermission()) {
+            call.reject("权限不足，无法访问使用情况数据");
+            return;
+        }
+        schedule(call, RequestScheduler.Priority.LOW, false, (token, out) -> backfill(call, token, out));
+    }
+
+    private void backfill(PluginCall call, CancelToken token, RequestScheduler.Responder<JSObject> out) {
+        try (PerfStats.Phase ignored = perfStats.phase("backfill")) {
+            long startTime = call.getLong("startTime");
+            long endTime = call.getLong("endTime");
+            long sliceMillis = call.getLong("sliceMs", SlicedScanner.DAY_MILLIS);
+            int parallelism = call.getInt("parallelism", SlicedScanner.defaultParallelism());
+            if (sliceMillis < EventWindowCache.WINDOW_MILLIS) {
+                out.reject("sliceMs 不能小于一小时");
+                return;
+            }
+
+            final String streamId = call.getString("streamId", call.getCallbackId());
+            // 当前分片的事件和会话，每合并完一个分片推送后清空，内存占用只与分片大小相关
+            final JSArray[] sessions = { new JSArray() };
+            final CompactEventEncoder[] encoder = { new CompactEventEncoder() };
+            // 批次数、事件总数、会话总数
+            final int[] counts = new int[3];
+            SessionBuilder builder = new SessionBuilder(startTime, endTime,
+                    session -> sessions[0].put(createSessionObject(session)));
+            try {
+                // 取消后合并停止，线程池中尚未完成的分片被中断
+                new SlicedScanner(parallelism).scan(startTime, endTime, sliceMillis, this::queryUsageEvents,
+                        token.wrap((timestamp, packageName, className, eventType) -> {
+                            if (EventTypes.isForeground(eventType)) {
+                                encoder[0].add(packageName, className, timestamp, eventType);
+                                builder.accept(packageName, eventType, timestamp);
+                            }
+                            return true;
+                        }),
+                        (completedSlices, totalSlices, sliceStart, sliceEnd, eventCount) -> {
+                            counts[1] += encoder[0].getCount();
+                            counts[2] += sessions[0].length();
+                            notifyBackfillBatch(streamId, counts[0]++, sliceStart, sliceEnd,
+                                    encoder[0], sessions[0], false);
+                            encoder[0] = new CompactEventEncoder();
+                            sessions[0] = new JSArray();
+
+                            JSObject progress = new JSObject();
+                            progress.put("streamId", streamId);
+                            progress.put("completedSlices", completedSlices);
+                            progress.put("totalSlices", totalSlices);
+                            progress.put("sliceStart", sliceStart);
+                            progress.put("sliceEnd", sliceEnd);
+                            progress.put("eventCount", eventCount);
+                            notifyListeners(EVENT_BACKFILL_PROGRESS, progress);
+                        });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                out.reject("回填被中断");
+                return;
+            }
+            if (token.isCancelled()) {
+                // 调用已被拒绝，不再推送最后一批
+                return;
             }
+            // 范围结束时仍在前台的会话随最后一批（不含事件）推送，带上 done 标记
+            builder.finish();
+            counts[2] += sessions[0].length();
+            notifyBackfillBatch(streamId, counts[0]++, endTime, endTime, encoder[0], sessions[0], true);
+
+            JSObject result = new JSObject();
+            result.put("streamId", streamId);
+            result.put("eventCount", counts[1]);
+            result.put("sessionCount", counts[2]);
+            result.put("batchCount", counts[0]);
+            resolveTimed(out, "backfill", result);
+        }
+    }
+
+    private void notifyBackfillBatch(String streamId, int batchIndex, long sliceStart, long sliceEnd,
+                                     CompactEventEncoder encoder, JSArray sessions, boolean done) {
+        JSObject data = new JSObject();
+        data.put("streamId", streamId);
+        data.put("batchIndex", batchIndex);
+        data.put("sliceStart", sliceStart);
+        data.put("sliceEnd", sliceEnd);
+        data.put("compact", createCompactPayload("backfill", encoder));
+        data.put("sessions", sessions);
+        data.put("done", done);
+        try (PerfStats.Phase ignored = perfStats.phase("backfill.notify")) {
+            notifyListeners(EVENT_BACKFILL_BATCH, data);
         }
+    }
 
-        result.put("events", eventsArray);
+    /**
+     * 把系统中尚未写入的事件追加到本地事件日志，并折叠进按天 / 按小时汇总
+     * 从上次写入的终点继续，日志为空时从 since 和 7 天前中较早的一个开始采集；
+     * 返回的 coveredFrom 晚于调用方需要的起点时，这段事件只能从系统读取；
+     * 采集与后台任务共用同一把锁，取消只会让调用提前返回，已开始的采集会完成
+     */
+    @PluginMethod
+    public void syncEventJournal(PluginCall call) {
+        if (!checkUsageStatsPermission()) {
+            call.reject("权限不足，无法访问使用情况数据");
+            return;
+        }
+        schedule(call, RequestScheduler.Priority.LOW, true, (token, out) -> {
+            try (PerfStats.Phase ignored = perfStats.phase("syncEventJournal")) {
+                UsageCollector.Result collected = UsageCollector.collect(getContext(), call.getLong("since", 0L));
+                JSObject result = new JSObject();
+                result.put("appended", collected.appended);
+                result.put("coveredFrom", collected.coveredFrom);
+                result.put("coveredUntil", collected.coveredUntil);
+                perfStats.increment("syncEventJournal.appended", collected.appended);
+                out.resolve(result);
+            } catch (IOException e) {
+                Log.e(TAG, "Error writing event journal", e);
+                out.reject("写入事件日志失败: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 开启或关闭后台周期采集，intervalMinutes 最小为 15
+     */
+    @PluginMethod
+    public void setBackgroundCollection(PluginCall call) {
+        boolean enabled = call.getBoolean("enabled", true);
+        if (!enabled) {
+            UsageCollector.cancel(getContext());
+        } else {
+            Integer intervalMinutes = call.getInt("intervalMinutes");
+            long interval = intervalMinutes != null
+                    ? intervalMinutes * 60L * 1000 : UsageCollector.DEFAULT_INTERVAL;
+            UsageCollector.schedule(getContext(), interval);
+        }
+        JSObject result = new JSObject();
+        result.put("enabled", enabled);
         call.resolve(result);
     }
 
+    /**
+     * 读取后台采集维护的按天汇总，每天的格式与 queryHourlyAggregates 相同
+     * 只包含已结束的会话，不访问系统使用情况数据
+     */
+    @PluginMethod
+    public void getDailyRollups(PluginCall call) {
+        String startDate = call.getString("startDate");
+        String endDate = call.getString("endDate", startDate);
+        if (startDate == null || endDate == null) {
+            call.reject("需要提供 startDate");
+            return;
+        }
+        // 首次调用需要从磁盘加载汇总文件
+        schedule(call, RequestScheduler.Priority.HIGH, true,
+                (token, out) -> getDailyRollups(startDate, endDate, out));
+    }
+
+    private void getDailyRollups(String startDate, String endDate, RequestScheduler.Responder<JSObject> out) {
+        try (PerfStats.Phase ignored = perfStats.phase("getDailyRollups")) {
+            TimeZone timeZone = TimeZone.getDefault();
+            UsageRollups rollups = UsageCollector.getRollups(getContext());
+            JSArray daysArray = new JSArray();
+            synchronized (UsageCollector.class) {
+                for (String date : rollups.getDates(startDate, endDate)) {
+                    daysArray.put(createRollupDayObject(date, rollups.getDay(date), timeZone));
+                }
+            }
+
+            JSObject result = new JSObject();
+            result.put("foldedUntil", rollups.getFoldedUntil());
+            result.put("days", daysArray);
+            resolveTimed(out, "getDailyRollups", result);
+        }
+    }
+
+    private static JSObject createRollupDayObject(String date, Map<String, UsageRollups.AppDay> apps,
+                                                  TimeZone timeZone) {
+        long[] range = TimeRanges.dayRange(date, timeZone);
+
+        JSArray hoursArray = new JSArray();
+        long totalDuration = 0;
+        for (int hour = 0; hour < UsageRollups.HOURS_PER_DAY; hour++) {
+            long hourTotal = 0;
+            JSArray hourApps = new JSArray();
+            for (Map.Entry<String, UsageRollups.AppDay> entry : apps.entrySet()) {
+                long duration = entry.getValue().getHourDuration(hour);
+                if (duration > 0) {
+                    JSObject appObject = new JSObject();
+                    appObject.put("packageName", entry.getKey());
+                    appObject.put("totalDuration", duration);
+                    appObject.put("usageCount", entry.getValue().getHourCount(hour));
+                    hourApps.put(appObject);
+                    hourTotal += duration;
+                }
+            }
+            totalDuration += hourTotal;
+
+            JSObject hourObject = new JSObject();
+            hourObject.put("hour", hour);
+            hourObject.put("hourStart", TimeRanges.hourStart(date, hour, timeZone));
+            hourObject.put("totalDuration", hourTotal);
+            hourObject.put("apps", hourApps);
+            hoursArray.put(hourObject);
+        }
+
+        JSArray appsArray = new JSArray();
+        for (Map.Entry<String, UsageRollups.AppDay> entry : apps.entrySet()) {
+            JSObject appObject = new JSObject();
+            appObject.put("packageName", entry.getKey());
+            appObject.put("totalDuration", entry.getValue().getTotalDuration());
+            appObject.put("launchCount", entry.getValue().getLaunchCount());
+            appObject.put("lastUsed", entry.getValue().getLastUsed());
+            appsArray.put(appObject);
+        }
+
+        JSObject result = new JSObject();
+        result.put("date", date);
+        result.put("startTime", range[0]);
+        result.put("endTime", range[1]);
+        result.put("totalDuration", totalDuration);
+        result.put("hours", hoursArray);
+        result.put("apps", appsArray);
+        return result;
+    }
+
+    /**
+     * 从本地事件日志读取前台事件，参数和返回格式与 queryEvents 相同
+     */
+    @PluginMethod
+    public void queryJournal(PluginCall call) {
+        schedule(call, RequestScheduler.Priority.NORMAL, true, (token, out) -> {
+            try (PerfStats.Phase ignored = perfStats.phase("queryJournal")) {
+                queryFilteredEvents(call, token, out, "queryJournal", true);
+            }
+        });
+    }
+
+    /**
+     * queryEvents / queryJournal 的公共实现，按页读取符合过滤条件的事件
+     */
+    private void queryFilteredEvents(PluginCall call, CancelToken token, RequestScheduler.Responder<JSObject> out,
+                                     String method, boolean fromJournal) {
+        long startTime = call.getLong("startTime");
+        long endTime = call.getLong("endTime");
+        Integer pageSize = call.getInt("pageSize");
+
+        final EventFilter filter;
+        try {
+            filter = createEventFilter(call);
+        } catch (IllegalArgumentException e) {
+            out.reject(e.getMessage());
+            return;
+        }
+        final int fields = filter.getFields();
+        final boolean withClassName = filter.includes(EventFilter.FIELD_CLASS_NAME);
+
+        EventPager pager = null;
+        if (pageSize != null) {
+            try {
+                pager = new EventPager(call.getString("cursor"), pageSize);
+            } catch (IllegalArgumentException e) {
+                out.reject(e.getMessage());
+                return;
+            }
+        }
+        final EventPager eventPager = pager;
+
+        // compact 格式：字典 + base64 编码的紧凑行，显著减小传输和解析开销
+        boolean compact = FORMAT_COMPACT.equals(call.getString("format"));
+        final JSArray eventsArray = compact ? null : new JSArray();
+        final CompactEventEncoder encoder = compact ? new CompactEventEncoder() : null;
+        final String[] nextCursor = new String[1];
+        // 扫描数和返回数，回调中只做本地累加
+        final long[] counts = new long[2];
+
+        EventJournal.Visitor visitor = token.wrap((timestamp, packageName, className, eventType) -> {
+            counts[0]++;
+            if (!filter.accepts(packageName, eventType)) {
+                return true;
+            }
+            if (eventPager != null) {
+                if (eventPager.shouldSkip(timestamp)) {
+                    return true;
+                }
+                if (eventPager.isFull()) {
+                    // 还有未返回的事件，生成续传令牌
+                    nextCursor[0] = eventPager.nextCursor();
+                    return false;
+                }
+                eventPager.onEmitted(timestamp);
+            }
+
+            if (encoder != null) {
+                // 紧凑格式的行结构固定，投影只能省略类名
+                encoder.add(packageName, withClassName ? className : null, timestamp, eventType);
+            } else {
+                eventsArray.put(EventJson.toJson(packageName, className, timestamp, eventType, fields));
+            }
+            counts[1]++;
+            return true;
+        });
+
+        // 不分页时一次扫描整个范围；分页时扫描量与页大小相关，而不是与剩余范围相关
+        long scanStart = pager != null ? pager.scanStart(startTime) : startTime;
+        long scanWindow = pager != null ? PAGE_SCAN_WINDOW : endTime - scanStart;
+        try {
+            while (scanStart < endTime && nextCursor[0] == null && !token.isCancelled()) {
+                long scanEnd = endTime - scanStart > scanWindow ? scanStart + scanWindow : endTime;
+                replayEvents(scanStart, scanEnd, fromJournal, visitor);
+                scanStart = scanEnd;
+                scanWindow = Math.min(scanWindow * 2, MAX_PAGE_SCAN_WINDOW);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading event journal", e);
+            out.reject("读取事件日志失败: " + e.getMessage());
+            return;
+        }
+        if (token.isCancelled()) {
+            return;
+        }
+
+        perfStats.increment(method + ".scanned", counts[0]);
+        perfStats.increment(method + ".emitted", counts[1]);
+
+        JSObject result = new JSObject();
+        if (compact) {
+            result.put("compact", createCompactPayload(method, encoder));
+        } else {
+            result.put("events", eventsArray);
+        }
+        if (nextCursor[0] != null) {
+            result.put("nextCursor", nextCursor[0]);
+        }
+        resolveTimed(out, method, result);
+    }
+
+    /**
+     * 压缩事件日志，删除 before 之前整天的段文件
+     */
+    @PluginMethod
+    public void compactJournal(PluginCall call) {
+        Long before = call.getLong("before");
+        if (before == null) {
+            call.reject("需要提供 before");
+            return;
+        }
+        schedule(call, RequestScheduler.Priority.LOW, true, (token, out) -> {
+            try (PerfStats.Phase ignored = perfStats.phase("compactJournal")) {
+                EventJournal journal = getEventJournal();
+                int removed = journal.compact(before);
+
+                JSObject result = new JSObject();
+                result.put("removedSegments", removed);
+                result.put("segmentCount", journal.getSegmentCount());
+                out.resolve(result);
+            } catch (IOException e) {
+                Log.e(TAG, "Error compacting event journal", e);
+                out.reject("压缩事件日志失败: " + e.getMessage());
+            }
+        });
+    }
+
+    private EventJournal getEventJournal() throws IOException {
+        return UsageCollector.getJournal(getContext());
+    }
+
+    private JSObject buildHourlyAggregatesResult(HourlyAggregator aggregator, long startTime, long endTime,
+                                                 TimeZone timeZone) {
+        PackageDictionary packages = aggregator.getPackages();
+        int appCount = packages.size();
+
+        long totalDuration = 0;
+        JSArray hoursArray = new JSArray();
+        for (int hour = 0; hour < aggregator.getHourCount(); hour++) {
+            long hourStart = aggregator.getHourStart(hour);
+            long hourTotal = aggregator.getHourTotal(hour);
+            totalDuration += hourTotal;
+
+            JSArray hourApps = new JSArray();
+            if (hourTotal > 0) {
+                for (int app = 0; app < appCount; app++) {
+                    long duration = aggregator.getHourAppDuration(hour, app);
+                    if (duration > 0) {
+                        JSObject appObject = new JSObject();
+                        appObject.put("packageName", packages.nameAt(app));
+                        appObject.put("totalDuration", duration);
+                        appObject.put("usageCount", aggregator.getHourAppCount(hour, app));
+                        hourApps.put(appObject);
+                    }
+                }
+            }
+
+            JSObject hourObject = new JSObject();
+            hourObject.put("hour", TimeRanges.hourOf(hourStart, timeZone));
+            hourObject.put("hourStart", hourStart);
+            hourObject.put("totalDuration", hourTotal);
+            hourObject.put("apps", hourApps);
+            hoursArray.put(hourObject);
+        }
+
+        JSArray appsArray = new JSArray();
+        for (int app = 0; app < appCount; app++) {
+            JSObject appObject = new JSObject();
+            appObject.put("packageName", packages.nameAt(app));
+            appObject.put("totalDuration", aggregator.getAppDuration(app));
+            appObject.put("launchCount", aggregator.getAppLaunchCount(app));
+            appObject.put("lastUsed", aggregator.getAppLastUsed(app));
+            appsArray.put(appObject);
+        }
+
+        JSObject result = new JSObject();
+        result.put("startTime", startTime);
+        result.put("endTime", endTime);
+        result.put("totalDuration", totalDuration);
+        result.put("hours", hoursArray);
+        result.put("apps", appsArray);
+        return result;
+    }
+
     @PluginMethod
     public void getAppInfo(PluginCall call) {
         String packageName = call.getString("packageName");
-
         if (packageName == null || packageName.isEmpty()) {
             call.reject("包名不能为空");
             return;
         }
+        final IconRenderer renderer;
+        try {
+            renderer = createIconRenderer(call);
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        schedule(call, RequestScheduler.Priority.HIGH, true,
+                (token, out) -> getAppInfo(call, packageName, renderer, out));
+    }
+
+    private void getAppInfo(PluginCall call, String packageName, IconRenderer renderer,
+                            RequestScheduler.Responder<JSObject> out) {
+        try (PerfStats.Phase ignored = perfStats.phase("getAppInfo")) {
+            PackageManager packageManager = getContext().getPackageManager();
+            try {
+                PackageInfo packageInfo = packageManager.getPackageInfo(packageName, 0);
+                boolean iconAsFile = ICON_MODE_FILE.equals(call.getString("iconMode"));
+                AppMetadataLoader loader = createMetadataLoader(iconAsFile, renderer);
+                JSObject result = createAppInfoObject(loader.loadOne(packageInfo, true), iconAsFile);
+                saveLabelMemo();
+                out.resolve(result);
+            } catch (PackageManager.NameNotFoundException e) {
+                // 对于找不到的应用，返回一个基本的应用信息对象而不是抛出错误
+                Log.w(TAG, "应用未找到，返回基本信息: " + packageName);
+
+                JSObject result = new JSObject();
+                result.put("packageName", packageName);
+                result.put("appName", getDisplayNameResolver().displayNameOf(packageName));
+                result.put("versionName", "未知");
+                result.put("versionCode", 0);
+                result.put("firstInstallTime", 0);
+                result.put("lastUpdateTime", 0);
+                result.put("isSystemApp", true); // 假设是系统应用
+                result.put("icon", null);
+
+                out.resolve(result);
+            }
+        }
+    }
 
-        PackageManager packageManager = getContext().getPackageManager();
+    @PluginMethod
+    public void getInstalledApps(PluginCall call) {
+        final IconRenderer renderer;
         try {
-            ApplicationInfo appInfo = packageManager.getApplicationInfo(packageName, 0);
-            JSObject result = createAppInfoObject(packageManager, appInfo, true);
-            call.resolve(result);
-        } catch (PackageManager.NameNotFoundException e) {
-            // 对于找不到的应用，返回一个基本的应用信息对象而不是抛出错误
-            Log.w(TAG, "应用未找到，返回基本信息: " + packageName);
+            renderer = createIconRenderer(call);
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        schedule(call, RequestScheduler.Priority.NORMAL, true,
+                (token, out) -> getInstalledApps(call, renderer, token, out));
+    }
+
+    private void getInstalledApps(PluginCall call, IconRenderer renderer, CancelToken token,
+                                  RequestScheduler.Responder<JSObject> out) {
+        try (PerfStats.Phase ignored = perfStats.phase("getInstalledApps")) {
+            boolean includeIcons = call.getBoolean("includeIcons", false);
+            // iconMode 为 file 时返回磁盘缓存的图标地址，而不是 base64 数据
+            boolean iconAsFile = ICON_MODE_FILE.equals(call.getString("iconMode"));
+
+            // 一次调用拿到全部应用的 PackageInfo，名称和图标在线程池中并行解析
+            AppMetadataLoader loader = createMetadataLoader(iconAsFile, renderer);
+            long loadStart = System.currentTimeMillis();
+            AppMetadataLoader.AppMetadata[] apps = loader.load(loader.getInstalledPackages(), includeIcons, token);
+            if (token.isCancelled()) {
+                return;
+            }
 
             JSObject result = new JSObject();
-            result.put("packageName", packageName);
-            result.put("appName", generateDisplayNameFromPackage(packageName));
-            result.put("versionName", "未知");
-            result.put("versionCode", 0);
-            result.put("firstInstallTime", 0);
-            result.put("lastUpdateTime", 0);
-            result.put("isSystemApp", true); // 假设是系统应用
-            result.put("icon", null);
+            result.put("apps", createAppInfoArray(apps, iconAsFile));
+            result.put("resolvedFields", createResolvedFieldsSummary(apps, System.currentTimeMillis() - loadStart));
+            saveLabelMemo();
 
-            call.resolve(result);
+            if (includeIcons && iconAsFile) {
+                trimIconCaches();
+            }
+
+            out.resolve(result);
         }
     }
 
+    /**
+     * 增量获取已安装应用
+     * 只返回自 sinceToken 以来新增、更新、删除的应用，以及新的令牌；
+     * 令牌为空或失效时 full 为 true，added 中是全部已安装应用
+     */
     @PluginMethod
-    public void getInstalledApps(PluginCall call) {
-        boolean includeIcons = call.getBoolean("includeIcons", false);
+    public void getInstalledAppsDelta(PluginCall call) {
+        final IconRenderer renderer;
+        try {
+            renderer = createIconRenderer(call);
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        schedule(call, RequestScheduler.Priority.NORMAL, true,
+                (token, out) -> getInstalledAppsDelta(call, renderer, token, out));
+    }
 
-        PackageManager packageManager = getContext().getPackageManager();
-        List<ApplicationInfo> installedApps = packageManager.getInstalledApplications(PackageManager.GET_META_DATA);
+    /**
+     * 取消后快照已经更新，调用方没有拿到新令牌，下一次会按全量返回
+     */
+    private void getInstalledAppsDelta(PluginCall call, IconRenderer renderer, CancelToken token,
+                                       RequestScheduler.Responder<JSObject> out) {
+        try (PerfStats.Phase ignored = perfStats.phase("getInstalledAppsDelta")) {
+            boolean includeIcons = call.getBoolean("includeIcons", false);
+            boolean iconAsFile = ICON_MODE_FILE.equals(call.getString("iconMode"));
 
-        JSObject result = new JSObject();
-        JSArray appsArray = new JSArray();
+            PackageChangeTracker.Result changes = getPackageChangeTracker().getChangesSince(call.getString("sinceToken"));
+            AppMetadataLoader loader = createMetadataLoader(iconAsFile, renderer);
+
+            JSObject result = new JSObject();
+            result.put("full", changes.full);
+            result.put("token", changes.token);
+            result.put("added", createAppInfoArray(
+                    loader.load(loader.getPackages(changes.delta.added), includeIcons, token), iconAsFile));
+            result.put("updated", createAppInfoArray(
+                    loader.load(loader.getPackages(changes.delta.updated), includeIcons, token), iconAsFile));
+            result.put("removed", new JSArray(changes.delta.removed));
+            if (token.isCancelled()) {
+                return;
+            }
 
-        for (ApplicationInfo appInfo : installedApps) {
-            // 跳过系统应用（可选）
-            // if ((appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0) {
-            // continue;
-            // }
+            getLabelMemo().removeAll(changes.delta.removed);
+            saveLabelMemo();
 
-            try {
-                JSObject appObject = createAppInfoObject(packageManager, appInfo, includeIcons);
-                appsArray.put(appObject);
-            } catch (Exception e) {
-                Log.e(TAG, "Error processing app: " + appInfo.packageName, e);
+            if (includeIcons && iconAsFile) {
+                // 已卸载应用的图标在所有尺寸和格式的缓存中删除
+                for (IconDiskCache iconCache : getAllIconCaches()) {
+                    for (String packageName : changes.delta.removed) {
+                        iconCache.remove(packageName);
+                    }
+                }
+                trimIconCaches();
             }
+
+            out.resolve(result);
         }
+    }
 
-        result.put("apps", appsArray);
-        call.resolve(result);
+    private synchronized PackageChangeTracker getPackageChangeTracker() {
+        if (packageChangeTracker == null) {
+            packageChangeTracker = new PackageChangeTracker(getContext());
+        }
+        return packageChangeTracker;
     }
 
-    private JSObject createAppInfoObject(PackageManager packageManager, ApplicationInfo appInfo, boolean includeIcon) {
-        JSObject appObject = new JSObject();
-        appObject.put("packageName", appInfo.packageName);
-        
-        // 优先使用系统获取的应用名称，如果是英文则尝试使用中文映射
-        String systemAppName = packageManager.getApplicationLabel(appInfo).toString();
-        String chineseAppName = generateDisplayNameFromPackage(appInfo.packageName);
-        
-        // 如果中文名称不同于包名处理结果，且不是纯英文，则使用中文名称
-        if (!chineseAppName.equals(appInfo.packageName) && 
-            !chineseAppName.matches("^[a-zA-Z\\s]+$")) {
-            appObject.put("appName", chineseAppName);
-        } else {
-            appObject.put("appName", systemAppName);
+    private AppMetadataLoader createMetadataLoader(boolean iconAsFile, IconRenderer renderer) {
+        AppMetadataLoader.IconProvider iconProvider = iconAsFile
+                ? (packageManager, packageInfo) -> getCachedIconUri(packageManager, packageInfo, renderer)
+                : (packageManager, packageInfo) -> {
+                    Drawable drawable = packageManager.getApplicationIcon(packageInfo.applicationInfo);
+                    try (PerfStats.Phase ignored = perfStats.phase("icon.encode")) {
+                        return renderer.encodeDataUri(drawable);
+                    } catch (RuntimeException e) {
+                        Log.e(TAG, "Error rendering icon: " + packageInfo.packageName, e);
+                        return null;
+                    }
+                };
+        return new AppMetadataLoader(getMetadataExecutor(), getContext().getPackageManager(),
+                getDisplayNameResolver()::resolve, iconProvider, getLabelMemo(), Locale.getDefault().toLanguageTag(),
+                perfStats);
+    }
+
+    private synchronized ExecutorService getMetadataExecutor() {
+        if (metadataExecutor == null) {
+            metadataExecutor = AppMetadataLoader.newExecutor();
         }
+        return metadataExecutor;
+    }
 
-        try {
-            String versionName = packageManager.getPackageInfo(appInfo.packageName, 0).versionName;
-            long versionCode;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
-                versionCode = packageManager.getPackageInfo(appInfo.packageName, 0).getLongVersionCode();
-            } else {
-                versionCode = packageManager.getPackageInfo(appInfo.packageName, 0).versionCode;
+    /**
+     * 名称映射表只加载一次
+     */
+    private synchronized DisplayNameResolver getDisplayNameResolver() {
+        if (displayNameResolver == null) {
+            List<InputStream> sources = new ArrayList<>();
+            try {
+                sources.add(getContext().getAssets().open(DISPLAY_NAMES_FILE));
+                File overrideFile = new File(getContext().getFilesDir(), DISPLAY_NAMES_FILE);
+                if (overrideFile.exists()) {
+                    sources.add(new FileInputStream(overrideFile));
+                }
+                displayNameResolver = DisplayNameResolver.load(sources);
+            } catch (IOException e) {
+                Log.e(TAG, "Error loading display names", e);
+                displayNameResolver = new DisplayNameResolver(new HashMap<>());
+            } finally {
+                for (InputStream source : sources) {
+                    try {
+                        source.close();
+                    } catch (IOException ignored) {
+                    }
+                }
             }
-            long firstInstallTime = packageManager.getPackageInfo(appInfo.packageName, 0).firstInstallTime;
-            long lastUpdateTime = packageManager.getPackageInfo(appInfo.packageName, 0).lastUpdateTime;
+        }
+        return displayNameResolver;
+    }
 
-            appObject.put("versionName", versionName);
-            appObject.put("versionCode", versionCode);
-            appObject.put("firstInstallTime", firstInstallTime);
-            appObject.put("lastUpdateTime", lastUpdateTime);
-            appObject.put("isSystemApp", (appInfo.flags & ApplicationInfo.FLAG_SYSTEM) != 0);
+    private synchronized LabelMemo getLabelMemo() {
+        if (labelMemo == null) {
+            labelMemo = LabelMemo.readFrom(new File(getContext().getFilesDir(), LABEL_MEMO_FILE));
+        }
+        return labelMemo;
+    }
 
-            // 获取应用图标（可选，因为可能会影响性能）
-            if (includeIcon) {
-                Drawable icon = packageManager.getApplicationIcon(appInfo);
-                String iconBase64 = drawableToBase64(icon);
-                appObject.put("icon", iconBase64);
+    private void saveLabelMemo() {
+        LabelMemo memo = getLabelMemo();
+        if (!memo.isDirty()) {
+            return;
+        }
+        try {
+            memo.writeTo(new File(getContext().getFilesDir(), LABEL_MEMO_FILE));
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing label memo", e);
+        }
+    }
+
+    private JSArray createAppInfoArray(AppMetadataLoader.AppMetadata[] apps, boolean iconAsFile) {
+        JSArray appsArray = new JSArray();
+        for (AppMetadataLoader.AppMetadata app : apps) {
+            if (app != null) {
+                appsArray.put(createAppInfoObject(app, iconAsFile));
             }
-        } catch (PackageManager.NameNotFoundException e) {
-            Log.e(TAG, "Error getting app info: " + appInfo.packageName, e);
         }
+        return appsArray;
+    }
 
+    private JSObject createAppInfoObject(AppMetadataLoader.AppMetadata app, boolean iconAsFile) {
+        JSObject appObject = new JSObject();
+        appObject.put("packageName", app.getPackageName());
+        appObject.put("appName", app.appName);
+        appObject.put("versionName", app.getVersionName());
+        appObject.put("versionCode", app.getVersionCode());
+        appObject.put("firstInstallTime", app.packageInfo.firstInstallTime);
+        appObject.put("lastUpdateTime", app.packageInfo.lastUpdateTime);
+        appObject.put("isSystemApp", app.isSystemApp());
+        if (app.icon != null) {
+            appObject.put(iconAsFile ? "iconUri" : "icon", app.icon);
+        }
         return appObject;
     }
 
-    private String drawableToBase64(Drawable drawable) {
+    /**
+     * 统计各字段成功解析的应用数量
+     */
+    private static JSObject createResolvedFieldsSummary(AppMetadataLoader.AppMetadata[] apps, long elapsedMs) {
+        int total = 0;
+        int version = 0;
+        int label = 0;
+        int icon = 0;
+        for (AppMetadataLoader.AppMetadata app : apps) {
+            if (app == null) {
+                continue;
+            }
+            total++;
+            if ((app.resolvedFields & AppMetadataLoader.FIELD_VERSION) != 0) {
+                version++;
+            }
+            if ((app.resolvedFields & AppMetadataLoader.FIELD_LABEL) != 0) {
+                label++;
+            }
+            if ((app.resolvedFields & AppMetadataLoader.FIELD_ICON) != 0) {
+                icon++;
+            }
+        }
+        JSObject summary = new JSObject();
+        summary.put("total", total);
+        summary.put("version", version);
+        summary.put("label", label);
+        summary.put("icon", icon);
+        summary.put("elapsedMs", elapsedMs);
+        return summary;
+    }
+
+    /**
+     * 读取图标参数：iconSize（边长像素，默认为原始尺寸）、iconFormat（png / webp / webp_lossless，默认 png）、
+     * iconQuality（有损 WebP 的质量，默认 80）
+     * @throws IllegalArgumentException 参数错误
+     */
+    private static IconRenderer createIconRenderer(PluginCall call) {
+        int size = call.getInt("iconSize", 0);
+        if (size < 0 || size > MAX_ICON_SIZE) {
+            throw new IllegalArgumentException("iconSize 必须在 0 到 " + MAX_ICON_SIZE + " 之间");
+        }
+        IconRenderer.Format format = IconRenderer.Format.of(call.getString("iconFormat", "png"));
+        return new IconRenderer(size, format, call.getInt("iconQuality", DEFAULT_ICON_QUALITY));
+    }
+
+    /**
+     * 从磁盘缓存获取图标文件地址，只有应用更新后才重新渲染
+     * 返回 file:// 地址，JS 侧通过 Capacitor.convertFileSrc 转换后即可在 WebView 中加载
+     */
+    private String getCachedIconUri(PackageManager packageManager, PackageInfo packageInfo, IconRenderer renderer) {
         try {
-            Bitmap bitmap;
-            if (drawable instanceof BitmapDrawable) {
-                bitmap = ((BitmapDrawable) drawable).getBitmap();
-            } else {
-                bitmap = Bitmap.createBitmap(drawable.getIntrinsicWidth(),
-                        drawable.getIntrinsicHeight(),
-                        Bitmap.Config.ARGB_8888);
-                Canvas canvas = new Canvas(bitmap);
-                drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
-                drawable.draw(canvas);
-            }
-
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            bitmap.compress(Bitmap.CompressFormat.PNG, 70, stream);
-            byte[] byteArray = stream.toByteArray();
-            return "data:image/png;base64," + Base64.encodeToString(byteArray, Base64.DEFAULT);
-        } catch (Exception e) {
-            Log.e(TAG, "Error converting drawable to base64", e);
+            File iconFile = getIconCache(renderer).getOrCreate(packageInfo.packageName, packageInfo.lastUpdateTime,
+                    () -> {
+                        Drawable drawable = packageManager.getApplicationIcon(packageInfo.applicationInfo);
+                        try (PerfStats.Phase ignored = perfStats.phase("icon.encode")) {
+                            return renderer.encode(drawable);
+                        }
+                    });
+            return iconFile != null ? "file://" + iconFile.getAbsolutePath() : null;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Error caching icon: " + packageInfo.packageName, e);
             return null;
         }
     }
 
-    private boolean checkUsageStatsPermission() {
-        AppOpsManager appOps = (AppOpsManager) getContext()
-                .getSystemService(Context.APP_OPS_SERVICE);
-        int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
-                Process.myUid(), getContext().getPackageName());
-        return mode == AppOpsManager.MODE_ALLOWED;
-    }
-
-    /**
-     * 从包名生成显示名称
-     */
-    private String generateDisplayNameFromPackage(String packageName) {
-        // 处理特殊情况 - 优先使用中文名称
-        Map<String, String> specialCases = new HashMap<>();
-        
-        // 中文应用名称映射
-        specialCases.put("com.tencent.mm", "微信");
-        specialCases.put("com.tencent.mobileqq", "QQ");
-        specialCases.put("com.tencent.tim", "TIM");
-        specialCases.put("com.ss.android.ugc.aweme", "抖音");
-        specialCases.put("com.ss.android.ugc.trill", "TikTok");
-        specialCases.put("com.sina.weibo", "微博");
-        specialCases.put("com.eg.android.AlipayGphone", "支付宝");
-        specialCases.put("com.taobao.taobao", "淘宝");
-        specialCases.put("com.tmall.wireless", "天猫");
-        specialCases.put("com.jingdong.app.mall", "京东");
-        specialCases.put("com.pinduoduo.android", "拼多多");
-        specialCases.put("com.meituan.android", "美团");
-        specialCases.put("com.sankuai.meituan", "美团");
-        specialCases.put("com.dianping.v1", "大众点评");
-        specialCases.put("com.ele.me", "饿了么");
-        specialCases.put("com.baidu.BaiduMap", "百度地图");
-        specialCases.put("com.autonavi.minimap", "高德地图");
-        specialCases.put("com.baidu.searchbox", "百度");
-        specialCases.put("com.netease.cloudmusic", "网易云音乐");
-        specialCases.put("com.kugou.android", "酷狗音乐");
-        specialCases.put("com.kuwo.kwmusic", "酷我音乐");
-        specialCases.put("com.ting.mp3.android", "QQ音乐");
-        specialCases.put("com.zhihu.android", "知乎");
-        specialCases.put("tv.danmaku.bili", "哔哩哔哩");
-        specialCases.put("com.youku.phone", "优酷");
-        specialCases.put("com.iqiyi.i18n", "爱奇艺");
-        specialCases.put("com.qiyi.video", "爱奇艺");
-        specialCases.put("com.tencent.qqlive", "腾讯视频");
-        specialCases.put("com.hunantv.imgo.activity", "芒果TV");
-        specialCases.put("com.ss.android.article.news", "今日头条");
-        specialCases.put("com.phoenix.newsclient", "凤凰新闻");
-        specialCases.put("com.netease.newsreader.activity", "网易新闻");
-        specialCases.put("com.sohu.newsclient", "搜狐新闻");
-        specialCases.put("com.tencent.news", "腾讯新闻");
-        specialCases.put("com.UCMobile", "UC浏览器");
-        specialCases.put("com.qihoo.browser", "360浏览器");
-        specialCases.put("com.baidu.browser.apps", "百度浏览器");
-        specialCases.put("com.android.browser", "浏览器");
-        specialCases.put("com.tencent.androidqqmail", "QQ邮箱");
-        specialCases.put("com.netease.mail", "网易邮箱");
-        specialCases.put("com.yy.hiyo", "YY");
-        specialCases.put("com.immomo.momo", "陌陌");
-        specialCases.put("com.tantan.app", "探探");
-        specialCases.put("com.jiayuan.app", "世纪佳缘");
-        specialCases.put("com.baihe.app", "百合网");
-        specialCases.put("com.didi.passenger", "滴滴出行");
-        specialCases.put("com.sdu.didi.psnger", "滴滴出行");
-        specialCases.put("com.cainiao.wireless", "菜鸟");
-        specialCases.put("com.sf.activity", "顺丰速运");
-        specialCases.put("com.jd.jdlite", "京东极速版");
-        specialCases.put("com.xunmeng.pinduoduo", "拼多多");
-        specialCases.put("com.wandoujia.phoenix2", "豌豆荚");
-        specialCases.put("com.qihoo360.mobilesafe", "360手机卫士");
-        specialCases.put("com.tencent.qqpimsecure", "腾讯手机管家");
-        specialCases.put("com.cleanmaster.mguard", "猎豹清理大师");
-        specialCases.put("com.duokan.phone.remotecontroller", "万能遥控");
-        specialCases.put("com.miui.calculator", "计算器");
-        specialCases.put("com.android.calculator2", "计算器");
-        specialCases.put("com.miui.notes", "便签");
-        specialCases.put("com.miui.compass", "指南针");
-        specialCases.put("com.miui.weather2", "天气");
-        specialCases.put("com.android.deskclock", "时钟");
-        specialCases.put("com.miui.clock", "时钟");
-        specialCases.put("com.android.calendar", "日历");
-        specialCases.put("com.miui.calendar", "日历");
-        specialCases.put("com.android.contacts", "通讯录");
-        specialCases.put("com.miui.contacts", "通讯录");
-        specialCases.put("com.android.mms", "短信");
-        specialCases.put("com.miui.mms", "短信");
-        specialCases.put("com.android.dialer", "电话");
-        specialCases.put("com.miui.dialer", "电话");
-        specialCases.put("com.android.camera", "相机");
-        specialCases.put("com.miui.camera", "相机");
-        specialCases.put("com.android.gallery3d", "相册");
-        specialCases.put("com.miui.gallery", "相册");
-        specialCases.put("com.android.fileexplorer", "文件管理");
-        specialCases.put("com.miui.fileexplorer", "文件管理");
-        specialCases.put("com.android.settings", "设置");
-        specialCases.put("com.miui.securitycenter", "手机管家");
-        specialCases.put("com.xiaomi.market", "应用商店");
-        specialCases.put("com.miui.miuibrowser", "浏览器");
-        specialCases.put("com.miui.player", "音乐");
-        specialCases.put("com.miui.video", "视频");
-        
-        // 国际应用的中文名称
-        specialCases.put("com.google.android.apps.nexuslauncher", "Nexus启动器");
-        specialCases.put("com.google.android.launcher", "Google启动器");
-        specialCases.put("com.android.launcher", "Android启动器");
-        specialCases.put("com.google.android.gm", "Gmail");
-        specialCases.put("com.google.android.youtube", "YouTube");
-        specialCases.put("com.google.android.apps.maps", "谷歌地图");
-        specialCases.put("com.google.android.apps.translate", "谷歌翻译");
-        specialCases.put("com.google.android.apps.photos", "Google相册");
-        specialCases.put("com.google.android.calendar", "Google日历");
-        specialCases.put("com.google.android.contacts", "Google通讯录");
-        specialCases.put("com.whatsapp", "WhatsApp");
-        specialCases.put("com.instagram.android", "Instagram");
-        specialCases.put("com.facebook.katana", "Facebook");
-        specialCases.put("com.twitter.android", "Twitter");
-        specialCases.put("com.snapchat.android", "Snapchat");
-        specialCases.put("com.linkedin.android", "LinkedIn");
-        specialCases.put("com.spotify.music", "Spotify");
-        specialCases.put("com.netflix.mediaclient", "Netflix");
-        specialCases.put("com.amazon.mShop.android.shopping", "Amazon");
-        specialCases.put("com.ebay.mobile", "eBay");
-        specialCases.put("com.paypal.android.p2pmobile", "PayPal");
-        specialCases.put("com.skype.raider", "Skype");
-        specialCases.put("com.viber.voip", "Viber");
-        specialCases.put("com.telegram.messenger", "Telegram");
-        specialCases.put("com.discord", "Discord");
-        specialCases.put("com.slack", "Slack");
-        specialCases.put("com.microsoft.teams", "Microsoft Teams");
-        specialCases.put("com.zoom.us", "Zoom");
-        specialCases.put("us.zoom.videomeetings", "Zoom");
-        specialCases.put("com.adobe.reader", "Adobe Reader");
-        specialCases.put("com.microsoft.office.word", "Microsoft Word");
-        specialCases.put("com.microsoft.office.excel", "Microsoft Excel");
-        specialCases.put("com.microsoft.office.powerpoint", "Microsoft PowerPoint");
-        specialCases.put("com.dropbox.android", "Dropbox");
-        specialCases.put("com.google.android.apps.docs", "Google文档");
-        specialCases.put("com.reddit.frontpage", "Reddit");
-        specialCases.put("com.pinterest", "Pinterest");
-        specialCases.put("com.tumblr", "Tumblr");
-        specialCases.put("com.medium.reader", "Medium");
-        specialCases.put("com.duolingo", "Duolingo");
-        specialCases.put("com.king.candycrushsaga", "糖果传奇");
-        specialCases.put("com.supercell.clashofclans", "部落冲突");
-        specialCases.put("com.tencent.tmgp.sgame", "王者荣耀");
-        specialCases.put("com.tencent.tmgp.pubgmhd", "绝地求生");
-        specialCases.put("com.netease.dwrg", "第五人格");
-        specialCases.put("com.netease.hyxd", "荒野行动");
-        specialCases.put("com.miHoYo.GenshinImpact", "原神");
-        specialCases.put("com.miHoYo.bh3.oversea", "崩坏3");
-
-        // 精确匹配包名
-        if (specialCases.containsKey(packageName)) {
-            return specialCases.get(packageName);
-        }
-
-        // 模糊匹配包名中的关键词
-        for (Map.Entry<String, String> entry : specialCases.entrySet()) {
-            if (packageName.contains(entry.getKey())) {
-                return entry.getValue();
-            }
-        }
-
-        // 通用处理：移除常见前缀并格式化
-        String displayName = packageName
-                .replaceFirst("^com\\.", "")
-                .replaceFirst("^android\\.", "")
-                .replaceFirst("^org\\.", "");
-
-        // 将点号替换为空格，并将每个单词首字母大写
-        String[] parts = displayName.split("\\.");
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < parts.length; i++) {
-            if (i > 0)
-                result.append(" ");
-            String part = parts[i];
-            if (part.length() > 0) {
-                result.append(Character.toUpperCase(part.charAt(0)));
-                if (part.length() > 1) {
-                    result.append(part.substring(1));
+    /**
+     * 每种尺寸和格式的图标使用独立的缓存目录，原始尺寸的 PNG 沿用原来的目录
+     */
+    private synchronized IconDiskCache getIconCache(IconRenderer renderer) {
+        String directory = renderer.getSize() == 0 && renderer.getFormat() == IconRenderer.Format.PNG
+                ? ICON_CACHE_DIR
+                : ICON_CACHE_DIR + "_" + renderer.getSize() + "_" + renderer.getFormat().name().toLowerCase(Locale.US);
+        IconDiskCache iconCache = iconCaches.get(directory);
+        if (iconCache == null) {
+            iconCache = new IconDiskCache(new File(getContext().getFilesDir(), directory),
+                    ICON_CACHE_MAX_BYTES, renderer.getFormat().extension);
+            iconCaches.put(directory, iconCache);
+        }
+        return iconCache;
+    }
+
+    /**
+     * 全部图标缓存，首次调用时把磁盘上已有的缓存目录（包括不再请求的尺寸和格式）一并纳入，
+     * 这样它们也计入共用的大小上限，并按最久未使用的顺序最先被淘汰
+     */
+    private synchronized List<IconDiskCache> getAllIconCaches() {
+        if (!iconCachesScanned) {
+            iconCachesScanned = true;
+            File[] files = getContext().getFilesDir().listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    IconRenderer.Format format = iconCacheFormatOf(file.getName());
+                    if (format != null && file.isDirectory() && !iconCaches.containsKey(file.getName())) {
+                        iconCaches.put(file.getName(), new IconDiskCache(file, ICON_CACHE_MAX_BYTES, format.extension));
+                    }
                 }
             }
         }
+        return new ArrayList<>(iconCaches.values());
+    }
 
-        return result.length() > 0 ? result.toString() : packageName;
+    /**
+     * 由缓存目录名得到图标格式，不是图标缓存目录时返回 null
+     */
+    private static IconRenderer.Format iconCacheFormatOf(String directory) {
+        if (directory.equals(ICON_CACHE_DIR)) {
+            return IconRenderer.Format.PNG;
+        }
+        String prefix = ICON_CACHE_DIR + "_";
+        int separator = directory.indexOf('_', prefix.length());
+        if (!directory.startsWith(prefix) || separator < 0) {
+            return null;
+        }
+        try {
+            Integer.parseInt(directory.substring(prefix.length(), separator));
+            return IconRenderer.Format.valueOf(directory.substring(separator + 1).toUpperCase(Locale.US));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void trimIconCaches() {
+        int evicted = IconDiskCache.trimToSize(getAllIconCaches(), ICON_CACHE_MAX_BYTES);
+        perfStats.increment("icon.cacheEvicted", evicted);
+    }
+
+    private boolean checkUsageStatsPermission() {
+        return UsageCollector.hasUsagePermission(getContext());
     }
 }
@@ -0,0 +1,144 @@
+package com.nicky.vaulty;
+
+import android.content.Context;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.provider.Settings;
+import android.util.Log;
+
+import com.nicky.vaulty.apps.DeltaToken;
+import com.nicky.vaulty.apps.PackageSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 已安装应用变化跟踪
+ * API 26+ 使用 PackageManager.getChangedPackages 只检查变化过的包；
+ * 低版本或重启后序列号失效时，枚举包列表并与本地快照比较
+ */
+class PackageChangeTracker {
+    private static final String TAG = "PackageChangeTracker";
+    private static final String SNAPSHOT_FILE = "installed_packages.snapshot";
+
+    /**
+     * 变化结果
+     */
+    static class Result {
+        // 令牌无效或快照不一致，delta.added 中是全部已安装应用，调用方应做全量同步
+        final boolean full;
+        final PackageSnapshot.Delta delta;
+        final String token;
+
+        Result(boolean full, PackageSnapshot.Delta delta, String token) {
+            this.full = full;
+            this.delta = delta;
+            this.token = token;
+        }
+    }
+
+    private final Context context;
+    private final PackageManager packageManager;
+
+    PackageChangeTracker(Context context) {
+        this.context = context;
+        this.packageManager = context.getPackageManager();
+    }
+
+    /**
+     * 计算自 sinceToken 以来的变化
+     */
+    synchronized Result getChangesSince(String sinceToken) {
+        File snapshotFile = new File(context.getFilesDir(), SNAPSHOT_FILE);
+        PackageSnapshot snapshot = PackageSnapshot.readFrom(snapshotFile);
+        DeltaToken token = DeltaToken.parse(sinceToken);
+        int bootCount = getBootCount();
+
+        boolean full = snapshot == null || token == null || !token.snapshotHash.equals(snapshot.hash());
+        PackageSnapshot.Delta delta;
+        int sequenceNumber;
+
+        if (full) {
+            // 先取序列号再枚举，期间发生的变化会在下一次增量中重复出现，不会丢失
+            sequenceNumber = getCurrentSequenceNumber(-1);
+            PackageSnapshot current = enumerateInstalledPackages();
+            delta = new PackageSnapshot().diff(current);
+            snapshot = current;
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && token.canUseSequence(bootCount)) {
+            delta = new PackageSnapshot.Delta();
+            sequenceNumber = applyChangedPackages(snapshot, token.sequenceNumber, delta);
+        } else {
+            sequenceNumber = getCurrentSequenceNumber(-1);
+            PackageSnapshot current = enumerateInstalledPackages();
+            delta = snapshot.diff(current);
+            snapshot = current;
+        }
+
+        try {
+            snapshot.writeTo(snapshotFile);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing package snapshot", e);
+        }
+
+        String newToken = new DeltaToken(sequenceNumber >= 0 ? bootCount : -1, sequenceNumber,
+                snapshot.hash()).toString();
+        return new Result(full, delta, newToken);
+    }
+
+    /**
+     * 只检查序列号之后变化过的包，并更新快照
+     * @return 新的序列号
+     */
+    private int applyChangedPackages(PackageSnapshot snapshot, int sequenceNumber, PackageSnapshot.Delta delta) {
+        ChangedPackages changedPackages = packageManager.getChangedPackages(sequenceNumber);
+        if (changedPackages == null) {
+            // 没有变化
+            return sequenceNumber;
+        }
+
+        for (String packageName : changedPackages.getPackageNames()) {
+            try {
+                PackageInfo packageInfo = packageManager.getPackageInfo(packageName, 0);
+                if (snapshot.contains(packageName)) {
+                    delta.updated.add(packageName);
+                } else {
+                    delta.added.add(packageName);
+                }
+                snapshot.put(packageName, packageInfo.lastUpdateTime);
+            } catch (PackageManager.NameNotFoundException e) {
+                if (snapshot.contains(packageName)) {
+                    delta.removed.add(packageName);
+                    snapshot.remove(packageName);
+                }
+            }
+        }
+        return changedPackages.getSequenceNumber();
+    }
+
+    private PackageSnapshot enumerateInstalledPackages() {
+        PackageSnapshot snapshot = new PackageSnapshot();
+        List<PackageInfo> packages = packageManager.getInstalledPackages(0);
+        for (PackageInfo packageInfo : packages) {
+            snapshot.put(packageInfo.packageName, packageInfo.lastUpdateTime);
+        }
+        return snapshot;
+    }
+
+    private int getCurrentSequenceNumber(int defaultValue) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return defaultValue;
+        }
+        ChangedPackages changedPackages = packageManager.getChangedPackages(0);
+        return changedPackages != null ? changedPackages.getSequenceNumber() : 0;
+    }
+
+    private int getBootCount() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return -1;
+        }
+        return Settings.Global.getInt(context.getContentResolver(), Settings.Global.BOOT_COUNT, -1);
+    }
+}
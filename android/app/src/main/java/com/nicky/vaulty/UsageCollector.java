@@ -0,0 +1,206 @@
+package com.nicky.vaulty;
+
+import android.app.AppOpsManager;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import com.nicky.vaulty.journal.EventJournal;
+import com.nicky.vaulty.usage.EventWindowCache;
+import com.nicky.vaulty.usage.SlicedScanner;
+import com.nicky.vaulty.usage.TimeRanges;
+import com.nicky.vaulty.usage.UsageRollups;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TimeZone;
+
+/**
+ * 增量采集使用事件
+ * 从事件日志记录的位置继续读取系统 UsageEvents，追加到事件日志，再把日志中的新事件折叠进按天 / 按小时汇总。
+ * 插件和后台任务共用同一份日志和汇总，所有操作在类锁内串行执行
+ */
+final class UsageCollector {
+    private static final String TAG = "UsageCollector";
+    private static final String JOURNAL_DIR = "event_journal";
+    private static final String ROLLUPS_FILE = "usage_rollups.bin";
+    private static final int JOB_ID = 1001;
+    // 日志为空时至少向前采集的时长
+    private static final long INITIAL_LOOKBACK = 7L * 24 * 60 * 60 * 1000;
+    // 调用方要求更早的起点时最多向前采集的时长，超出系统保留期的部分本来也查询不到
+    private static final long MAX_LOOKBACK = 30L * 24 * 60 * 60 * 1000;
+    // 汇总保留的天数
+    private static final int ROLLUP_RETENTION_DAYS = 90;
+
+    static final long DEFAULT_INTERVAL = 60L * 60 * 1000;
+    // Android 7.0 之前没有 JobInfo.getMinPeriodMillis，系统同样限制周期任务最短 15 分钟
+    private static final long MIN_INTERVAL = 15L * 60 * 1000;
+
+    /**
+     * 一次采集的结果
+     */
+    static class Result {
+        final int appended;
+        final long coveredFrom;
+        final long coveredUntil;
+
+        Result(int appended, long coveredFrom, long coveredUntil) {
+            this.appended = appended;
+            this.coveredFrom = coveredFrom;
+            this.coveredUntil = coveredUntil;
+        }
+    }
+
+    private static EventJournal journal;
+    private static UsageRollups rollups;
+
+    private UsageCollector() {
+    }
+
+    static boolean hasUsagePermission(Context context) {
+        AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+        int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
+                Process.myUid(), context.getPackageName());
+        return mode == AppOpsManager.MODE_ALLOWED;
+    }
+
+    static synchronized EventJournal getJournal(Context context) throws IOException {
+        if (journal == null) {
+            journal = new EventJournal(new File(context.getFilesDir(), JOURNAL_DIR));
+        }
+        return journal;
+    }
+
+    static synchronized UsageRollups getRollups(Context context) {
+        if (rollups == null) {
+            rollups = UsageRollups.readFrom(new File(context.getFilesDir(), ROLLUPS_FILE), TimeZone.getDefault());
+        }
+        return rollups;
+    }
+
+    static Result collect(Context context) throws IOException {
+        return collect(context, 0);
+    }
+
+    /**
+     * 采集到当前时间：先追加系统事件到日志，再把日志中尚未折叠的部分折叠进汇总
+     * 汇总记录自己折叠到的位置，中途中断后下次会从日志补齐
+     * @param since 调用方需要的最早时间（例如上次同步时间），日志为空时从它和 7 天前中较早的一个开始采集，
+     *              0 表示没有要求；日志已有数据时只能从 coveredUntil 继续，调用方通过 coveredFrom 判断是否覆盖
+     */
+    static synchronized Result collect(Context context, long since) throws IOException {
+        EventJournal eventJournal = getJournal(context);
+        long now = System.currentTimeMillis();
+        long startTime;
+        if (eventJournal.getCoveredUntil() > 0) {
+            startTime = eventJournal.getCoveredUntil();
+        } else {
+            startTime = now - INITIAL_LOOKBACK;
+            if (since > 0 && since < startTime) {
+                startTime = Math.max(since, now - MAX_LOOKBACK);
+            }
+        }
+
+        final UsageStatsManager usageStatsManager = (UsageStatsManager) context
+                .getSystemService(Context.USAGE_STATS_SERVICE);
+        EventWindowCache.Source source = (sliceStart, sliceEnd, visitor) -> {
+            UsageEvents usageEvents = usageStatsManager.queryEvents(sliceStart, sliceEnd);
+            UsageEvents.Event event = new UsageEvents.Event();
+            while (usageEvents.hasNextEvent()) {
+                usageEvents.getNextEvent(event);
+                if (!visitor.visit(event.getTimeStamp(), event.getPackageName(), event.getClassName(),
+                        event.getEventType())) {
+                    return;
+                }
+            }
+        };
+
+        // 写入失败时停止遍历，遍历结束后再抛出
+        final int[] appended = new int[1];
+        final IOException[] failure = new IOException[1];
+        EventJournal.Visitor appender = (timestamp, packageName, className, eventType) -> {
+            try {
+                if (eventJournal.append(timestamp, packageName, className, eventType)) {
+                    appended[0]++;
+                }
+                return true;
+            } catch (IOException e) {
+                failure[0] = e;
+                return false;
+            }
+        };
+
+        if (now - startTime > SlicedScanner.DAY_MILLIS) {
+            // 首次采集跨越多天，按天并行查询后按顺序追加
+            try {
+                new SlicedScanner(SlicedScanner.defaultParallelism()).scan(startTime, now, SlicedScanner.DAY_MILLIS,
+                        source, appender, (completedSlices, totalSlices, sliceStart, sliceEnd, eventCount) ->
+                                Log.d(TAG, "已采集 " + completedSlices + "/" + totalSlices + " 天"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("采集被中断", e);
+            }
+        } else {
+            source.scan(startTime, now, appender);
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        eventJournal.commit(startTime, now);
+
+        foldJournal(context, eventJournal);
+        return new Result(appended[0], eventJournal.getCoveredFrom(), eventJournal.getCoveredUntil());
+    }
+
+    private static void foldJournal(Context context, EventJournal eventJournal) throws IOException {
+        UsageRollups usageRollups = getRollups(context);
+        long coveredUntil = eventJournal.getCoveredUntil();
+        if (usageRollups.getFoldedUntil() >= coveredUntil) {
+            return;
+        }
+
+        long oldest = coveredUntil - ROLLUP_RETENTION_DAYS * 24L * 60 * 60 * 1000;
+        eventJournal.read(Math.max(usageRollups.getFoldedUntil(), oldest), coveredUntil,
+                (timestamp, packageName, className, eventType) -> {
+                    usageRollups.accept(packageName, eventType, timestamp);
+                    return true;
+                });
+        usageRollups.setFoldedUntil(coveredUntil);
+        usageRollups.prune(TimeRanges.dateOf(oldest, TimeZone.getDefault()));
+        usageRollups.writeTo(new File(context.getFilesDir(), ROLLUPS_FILE));
+    }
+
+    /**
+     * 注册周期采集任务，间隔相同的任务已存在时不重复注册
+     */
+    static void schedule(Context context, long intervalMillis) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        long minInterval = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? JobInfo.getMinPeriodMillis() : MIN_INTERVAL;
+        long interval = Math.max(intervalMillis, minInterval);
+        for (JobInfo pending : scheduler.getAllPendingJobs()) {
+            if (pending.getId() == JOB_ID && pending.getIntervalMillis() == interval) {
+                return;
+            }
+        }
+
+        JobInfo jobInfo = new JobInfo.Builder(JOB_ID, new ComponentName(context, UsageCollectorJobService.class))
+                .setPeriodic(interval)
+                .setPersisted(true)
+                .build();
+        if (scheduler.schedule(jobInfo) != JobScheduler.RESULT_SUCCESS) {
+            Log.w(TAG, "注册后台采集任务失败");
+        }
+    }
+
+    static void cancel(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        scheduler.cancel(JOB_ID);
+    }
+}
@@ -0,0 +1,36 @@
+package com.nicky.vaulty;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.util.Log;
+
+/**
+ * 后台周期采集任务，不需要 WebView 运行
+ */
+public class UsageCollectorJobService extends JobService {
+    private static final String TAG = "UsageCollectorJob";
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        // onStartJob 在主线程回调，采集放到工作线程
+        new Thread(() -> {
+            try {
+                if (UsageCollector.hasUsagePermission(this)) {
+                    UsageCollector.Result result = UsageCollector.collect(this);
+                    Log.d(TAG, "后台采集完成: " + result.appended + " 条事件");
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error collecting usage events", e);
+            } finally {
+                jobFinished(params, false);
+            }
+        }, TAG).start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // 采集是幂等的，被中断时等待下一个周期即可
+        return false;
+    }
+}
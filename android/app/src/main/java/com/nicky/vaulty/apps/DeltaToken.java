@@ -0,0 +1,51 @@
+package com.nicky.vaulty.apps;
+
+/**
+ * 已安装应用增量同步令牌
+ * 格式：v1:{bootCount}:{sequenceNumber}:{snapshotHash}
+ * sequenceNumber 来自 PackageManager.getChangedPackages，重启后会重置，所以需要同时记录 bootCount；
+ * 不支持时两者均为 -1，只依靠快照比较
+ */
+public final class DeltaToken {
+    private static final String PREFIX = "v1";
+
+    public final int bootCount;
+    public final int sequenceNumber;
+    public final String snapshotHash;
+
+    public DeltaToken(int bootCount, int sequenceNumber, String snapshotHash) {
+        this.bootCount = bootCount;
+        this.sequenceNumber = sequenceNumber;
+        this.snapshotHash = snapshotHash;
+    }
+
+    /**
+     * 解析令牌，格式不符时返回 null
+     */
+    public static DeltaToken parse(String token) {
+        if (token == null) {
+            return null;
+        }
+        String[] parts = token.split(":");
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return null;
+        }
+        try {
+            return new DeltaToken(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), parts[3]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 是否可以直接使用 sequenceNumber 查询变化的包
+     */
+    public boolean canUseSequence(int currentBootCount) {
+        return sequenceNumber >= 0 && bootCount >= 0 && bootCount == currentBootCount;
+    }
+
+    @Override
+    public String toString() {
+        return PREFIX + ":" + bootCount + ":" + sequenceNumber + ":" + snapshotHash;
+    }
+}
@@ -0,0 +1,240 @@
+package com.nicky.vaulty.apps;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 应用显示名称解析器
+ * 映射表只构建一次（可从资源文件加载），精确匹配走 HashMap，
+ * 模糊匹配（包名中包含映射表中的键）使用 Aho-Corasick 自动机一次扫描完成，取最长的匹配键
+ */
+public class DisplayNameResolver {
+    private static final String[] STRIPPED_PREFIXES = { "com.", "android.", "org." };
+
+    private final Map<String, String> exactNames;
+
+    // Aho-Corasick 自动机，状态 0 为根；每个状态的转移按字符排序，使用二分查找
+    private char[][] transitionChars;
+    private int[][] transitionTargets;
+    private int[] failure;
+    // 在该状态结束的最长键的名称，没有则为 null
+    private String[] outputs;
+    private int[] outputLengths;
+    private int stateCount;
+
+    public DisplayNameResolver(Map<String, String> mapping) {
+        this.exactNames = new HashMap<>(mapping);
+        buildAutomaton(mapping);
+    }
+
+    /**
+     * 从 properties 格式的映射表加载（UTF-8），后面的来源覆盖前面的同名键
+     */
+    public static DisplayNameResolver load(List<InputStream> sources) throws IOException {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (InputStream source : sources) {
+            Properties properties = new Properties();
+            try (Reader reader = new InputStreamReader(source, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            for (String key : properties.stringPropertyNames()) {
+                mapping.put(key, properties.getProperty(key).trim());
+            }
+        }
+        return new DisplayNameResolver(mapping);
+    }
+
+    public int size() {
+        return exactNames.size();
+    }
+
+    /**
+     * 映射表中的名称：先精确匹配，再取包名中包含的最长键；都没有时返回 null
+     */
+    public String lookup(String packageName) {
+        String exact = exactNames.get(packageName);
+        if (exact != null) {
+            return exact;
+        }
+
+        String best = null;
+        int bestLength = 0;
+        int state = 0;
+        for (int i = 0; i < packageName.length(); i++) {
+            state = next(state, packageName.charAt(i));
+            String output = outputs[state];
+            if (output != null && outputLengths[state] > bestLength) {
+                best = output;
+                bestLength = outputLengths[state];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 从包名生成显示名称：映射表中有则使用映射，否则去掉常见前缀并把各段首字母大写
+     */
+    public String displayNameOf(String packageName) {
+        String mapped = lookup(packageName);
+        return mapped != null ? mapped : formatPackageName(packageName);
+    }
+
+    /**
+     * 结合系统名称决定最终展示名称
+     * 映射或生成的名称不是纯英文（如中文）时优先使用，否则使用系统名称
+     */
+    public String resolve(String packageName, String systemLabel) {
+        String displayName = displayNameOf(packageName);
+        if (!displayName.equals(packageName) && !isAsciiLettersAndSpaces(displayName)) {
+            return displayName;
+        }
+        return systemLabel != null ? systemLabel : displayName;
+    }
+
+    /**
+     * 通用处理：依次移除 com. / android. / org. 前缀，按点号分段并将每段首字母大写
+     */
+    public static String formatPackageName(String packageName) {
+        String displayName = packageName;
+        for (String prefix : STRIPPED_PREFIXES) {
+            if (displayName.startsWith(prefix)) {
+                displayName = displayName.substring(prefix.length());
+            }
+        }
+
+        StringBuilder result = new StringBuilder(displayName.length());
+        boolean segmentStart = true;
+        for (int i = 0; i < displayName.length(); i++) {
+            char c = displayName.charAt(i);
+            if (c == '.') {
+                result.append(' ');
+                segmentStart = true;
+            } else {
+                result.append(segmentStart ? Character.toUpperCase(c) : c);
+                segmentStart = false;
+            }
+        }
+
+        return result.length() > 0 ? result.toString() : packageName;
+    }
+
+    private static boolean isAsciiLettersAndSpaces(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || Character.isWhitespace(c))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void buildAutomaton(Map<String, String> mapping) {
+        // 构建 trie
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        children.add(new HashMap<>());
+        names.add(null);
+        depths.add(0);
+
+        for (Map.Entry<String, String> entry : mapping.entrySet()) {
+            String key = entry.getKey();
+            if (key.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < key.length(); i++) {
+                Integer child = children.get(state).get(key.charAt(i));
+                if (child == null) {
+                    child = children.size();
+                    children.get(state).put(key.charAt(i), child);
+                    children.add(new HashMap<>());
+                    names.add(null);
+                    depths.add(i + 1);
+                }
+                state = child;
+            }
+            names.set(state, entry.getValue());
+        }
+
+        stateCount = children.size();
+        transitionChars = new char[stateCount][];
+        transitionTargets = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            Map<Character, Integer> edges = children.get(state);
+            char[] chars = new char[edges.size()];
+            int n = 0;
+            for (Character c : edges.keySet()) {
+                chars[n++] = c;
+            }
+            Arrays.sort(chars);
+            int[] targets = new int[chars.length];
+            for (int i = 0; i < chars.length; i++) {
+                targets[i] = edges.get(chars[i]);
+            }
+            transitionChars[state] = chars;
+            transitionTargets[state] = targets;
+        }
+
+        // 按层次遍历计算失败指针，输出取自身或失败链上最长的键
+        failure = new int[stateCount];
+        outputs = new String[stateCount];
+        outputLengths = new int[stateCount];
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int target : transitionTargets[0]) {
+            failure[target] = 0;
+            queue[tail++] = target;
+        }
+        for (int target : transitionTargets[0]) {
+            setOutput(target, names.get(target), depths.get(target));
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = 0; i < transitionChars[state].length; i++) {
+                char c = transitionChars[state][i];
+                int target = transitionTargets[state][i];
+                failure[target] = next(failure[state], c);
+                queue[tail++] = target;
+                setOutput(target, names.get(target), depths.get(target));
+            }
+        }
+    }
+
+    private void setOutput(int state, String ownName, int depth) {
+        if (ownName != null) {
+            outputs[state] = ownName;
+            outputLengths[state] = depth;
+        } else {
+            outputs[state] = outputs[failure[state]];
+            outputLengths[state] = outputLengths[failure[state]];
+        }
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int index = Arrays.binarySearch(transitionChars[state], c);
+            if (index >= 0) {
+                return transitionTargets[state][index];
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+}
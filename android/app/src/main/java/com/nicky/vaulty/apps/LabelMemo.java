@@ -0,0 +1,121 @@
+package com.nicky.vaulty.apps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 系统应用名称缓存
+ * 按包名保存 getApplicationLabel 的结果，应用更新（lastUpdateTime 变化）或语言变化后自动失效
+ */
+public class LabelMemo {
+    private static final int FILE_VERSION = 1;
+
+    private static class Entry {
+        final long lastUpdateTime;
+        final String locale;
+        final String label;
+
+        Entry(long lastUpdateTime, String locale, String label) {
+            this.lastUpdateTime = lastUpdateTime;
+            this.locale = locale;
+            this.label = label;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean dirty;
+
+    /**
+     * 获取缓存的名称，版本或语言不一致时返回 null
+     */
+    public synchronized String get(String packageName, long lastUpdateTime, String locale) {
+        Entry entry = entries.get(packageName);
+        if (entry == null || entry.lastUpdateTime != lastUpdateTime || !entry.locale.equals(locale)) {
+            return null;
+        }
+        return entry.label;
+    }
+
+    public synchronized void put(String packageName, long lastUpdateTime, String locale, String label) {
+        entries.put(packageName, new Entry(lastUpdateTime, locale, label));
+        dirty = true;
+    }
+
+    public synchronized void removeAll(Collection<String> packageNames) {
+        for (String packageName : packageNames) {
+            if (entries.remove(packageName) != null) {
+                dirty = true;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 自上次读写文件后是否有修改
+     */
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * 写入文件，先写临时文件再重命名
+     */
+    public synchronized void writeTo(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            output.writeInt(FILE_VERSION);
+            output.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeLong(entry.getValue().lastUpdateTime);
+                output.writeUTF(entry.getValue().locale);
+                output.writeUTF(entry.getValue().label);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("无法写入应用名称缓存: " + file.getAbsolutePath());
+        }
+        dirty = false;
+    }
+
+    /**
+     * 读取缓存文件，文件不存在或格式不符时返回空缓存
+     */
+    public static LabelMemo readFrom(File file) {
+        LabelMemo memo = new LabelMemo();
+        if (!file.exists()) {
+            return memo;
+        }
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != FILE_VERSION) {
+                return memo;
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String packageName = input.readUTF();
+                long lastUpdateTime = input.readLong();
+                String locale = input.readUTF();
+                String label = input.readUTF();
+                memo.entries.put(packageName, new Entry(lastUpdateTime, locale, label));
+            }
+        } catch (IOException e) {
+            memo.entries.clear();
+        }
+        return memo;
+    }
+}
@@ -0,0 +1,137 @@
+package com.nicky.vaulty.apps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已安装应用快照
+ * 记录每个包的 lastUpdateTime，用于计算两次同步之间新增、更新、删除的应用
+ */
+public class PackageSnapshot {
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * 快照差异
+     */
+    public static class Delta {
+        public final List<String> added = new ArrayList<>();
+        public final List<String> updated = new ArrayList<>();
+        public final List<String> removed = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private final Map<String, Long> packages;
+
+    public PackageSnapshot() {
+        this(new HashMap<>());
+    }
+
+    private PackageSnapshot(Map<String, Long> packages) {
+        this.packages = packages;
+    }
+
+    public int size() {
+        return packages.size();
+    }
+
+    public boolean contains(String packageName) {
+        return packages.containsKey(packageName);
+    }
+
+    public void put(String packageName, long lastUpdateTime) {
+        packages.put(packageName, lastUpdateTime);
+    }
+
+    public void remove(String packageName) {
+        packages.remove(packageName);
+    }
+
+    /**
+     * 与当前安装状态比较，得到差异（不修改本快照）
+     */
+    public Delta diff(PackageSnapshot current) {
+        Delta delta = new Delta();
+        for (Map.Entry<String, Long> entry : current.packages.entrySet()) {
+            Long previous = packages.get(entry.getKey());
+            if (previous == null) {
+                delta.added.add(entry.getKey());
+            } else if (previous.longValue() != entry.getValue()) {
+                delta.updated.add(entry.getKey());
+            }
+        }
+        for (String packageName : packages.keySet()) {
+            if (!current.packages.containsKey(packageName)) {
+                delta.removed.add(packageName);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * 快照内容的哈希，与遍历顺序无关
+     */
+    public String hash() {
+        long hash = packages.size();
+        for (Map.Entry<String, Long> entry : packages.entrySet()) {
+            long entryHash = entry.getKey().hashCode() * 0x9E3779B97F4A7C15L + entry.getValue();
+            entryHash ^= entryHash >>> 29;
+            entryHash *= 0xBF58476D1CE4E5B9L;
+            entryHash ^= entryHash >>> 32;
+            hash += entryHash;
+        }
+        return Long.toHexString(hash);
+    }
+
+    public void writeTo(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            output.writeInt(FILE_VERSION);
+            output.writeInt(packages.size());
+            for (Map.Entry<String, Long> entry : packages.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeLong(entry.getValue());
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("无法写入应用快照: " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 读取快照文件，文件不存在或格式不符时返回 null
+     */
+    public static PackageSnapshot readFrom(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != FILE_VERSION) {
+                return null;
+            }
+            int count = input.readInt();
+            Map<String, Long> packages = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                packages.put(input.readUTF(), input.readLong());
+            }
+            return new PackageSnapshot(packages);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
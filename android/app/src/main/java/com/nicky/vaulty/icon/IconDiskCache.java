@@ -0,0 +1,248 @@
+package com.nicky.vaulty.icon;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 应用图标磁盘缓存
+ * 以 包名 + lastUpdateTime 为键，只有应用更新后才会重新渲染图标；
+ * 总大小超过上限时按最近最少使用的顺序淘汰；多个缓存目录可以用 trimToSize(caches, maxBytes) 共用一个上限
+ *
+ * 文件名格式：{packageName}@{lastUpdateTime}{extension}
+ */
+public class IconDiskCache {
+
+    /**
+     * 缓存未命中时用于生成图标数据
+     */
+    public interface IconSource {
+        /**
+         * @return 编码后的图标数据，返回 null 表示无法生成
+         */
+        byte[] encode() throws IOException;
+    }
+
+    private static final char VERSION_SEPARATOR = '@';
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maxBytes;
+    private final String extension;
+
+    // 包名 -> 缓存文件，按访问顺序排列（最久未使用的在前）
+    private final LinkedHashMap<String, File> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+    private boolean loaded = false;
+
+    public IconDiskCache(File directory, long maxBytes, String extension) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.extension = extension;
+    }
+
+    /**
+     * 获取图标文件，未命中或版本不一致时通过 source 生成并写入
+     * @return 图标文件，生成失败时返回 null
+     */
+    public File getOrCreate(String packageName, long lastUpdateTime, IconSource source)
+            throws IOException {
+        // 编码在锁外进行，多个线程可以同时渲染不同应用的图标
+        File cached = get(packageName, lastUpdateTime);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] data = source.encode();
+        if (data == null) {
+            return null;
+        }
+        return put(packageName, lastUpdateTime, data);
+    }
+
+    /**
+     * 获取与版本匹配的图标文件，未命中返回 null
+     */
+    public synchronized File get(String packageName, long lastUpdateTime) {
+        ensureLoaded();
+        File file = entries.get(packageName);
+        if (file == null) {
+            return null;
+        }
+        if (!file.getName().equals(fileNameOf(packageName, lastUpdateTime)) || !file.exists()) {
+            return null;
+        }
+        // 记录访问时间，重启后据此恢复 LRU 顺序
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * 写入图标文件，同时删除该应用的旧版本图标
+     */
+    public synchronized File put(String packageName, long lastUpdateTime, byte[] data) throws IOException {
+        ensureLoaded();
+        File file = new File(directory, fileNameOf(packageName, lastUpdateTime));
+
+        File previous = entries.remove(packageName);
+        if (previous != null) {
+            totalBytes -= previous.length();
+            if (!previous.equals(file)) {
+                previous.delete();
+            }
+        }
+
+        File temp = new File(directory, file.getName() + TEMP_SUFFIX);
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            output.write(data);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("无法写入图标缓存: " + file.getAbsolutePath());
+        }
+
+        entries.put(packageName, file);
+        totalBytes += data.length;
+        return file;
+    }
+
+    /**
+     * 删除指定应用的图标（应用被卸载时调用）
+     */
+    public synchronized void remove(String packageName) {
+        ensureLoaded();
+        File file = entries.remove(packageName);
+        if (file != null) {
+            totalBytes -= file.length();
+            file.delete();
+        }
+    }
+
+    /**
+     * 按 LRU 顺序淘汰，直到总大小不超过上限
+     * 一般在一批图标处理完成后调用一次
+     */
+    public synchronized int trimToSize() {
+        ensureLoaded();
+        int evicted = 0;
+        Iterator<Map.Entry<String, File>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            File file = iterator.next().getValue();
+            totalBytes -= file.length();
+            file.delete();
+            iterator.remove();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * 多个缓存共用一个大小上限：每次淘汰所有缓存中最久未使用的图标，
+     * 不再使用的尺寸和格式的图标因此最先被淘汰
+     * @return 淘汰的图标数
+     */
+    public static int trimToSize(Collection<IconDiskCache> caches, long maxBytes) {
+        long totalBytes = 0;
+        for (IconDiskCache cache : caches) {
+            totalBytes += cache.getTotalBytes();
+        }
+        int evicted = 0;
+        while (totalBytes > maxBytes) {
+            IconDiskCache oldest = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (IconDiskCache cache : caches) {
+                long access = cache.getOldestAccessTime();
+                if (access < oldestAccess) {
+                    oldest = cache;
+                    oldestAccess = access;
+                }
+            }
+            if (oldest == null) {
+                break;
+            }
+            totalBytes -= oldest.evictOldest();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * 最久未使用的图标的访问时间，缓存为空时返回 Long.MAX_VALUE
+     */
+    synchronized long getOldestAccessTime() {
+        ensureLoaded();
+        Iterator<File> iterator = entries.values().iterator();
+        return iterator.hasNext() ? iterator.next().lastModified() : Long.MAX_VALUE;
+    }
+
+    /**
+     * 淘汰最久未使用的图标
+     * @return 释放的字节数
+     */
+    private synchronized long evictOldest() {
+        Iterator<Map.Entry<String, File>> iterator = entries.entrySet().iterator();
+        if (!iterator.hasNext()) {
+            return 0;
+        }
+        File file = iterator.next().getValue();
+        long length = file.length();
+        totalBytes -= length;
+        file.delete();
+        iterator.remove();
+        return length;
+    }
+
+    public synchronized long getTotalBytes() {
+        ensureLoaded();
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    /**
+     * 首次使用时扫描缓存目录，按最后访问时间恢复 LRU 顺序
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String name = file.getName();
+            int separator = name.lastIndexOf(VERSION_SEPARATOR);
+            if (name.endsWith(TEMP_SUFFIX) || separator <= 0 || !name.endsWith(extension)) {
+                file.delete();
+                continue;
+            }
+            String packageName = name.substring(0, separator);
+            File previous = entries.put(packageName, file);
+            if (previous != null) {
+                // 同一应用残留的旧版本
+                totalBytes -= previous.length();
+                previous.delete();
+            }
+            totalBytes += file.length();
+        }
+    }
+
+    private String fileNameOf(String packageName, long lastUpdateTime) {
+        return packageName + VERSION_SEPARATOR + lastUpdateTime + extension;
+    }
+}
@@ -0,0 +1,196 @@
+package com.nicky.vaulty.icon;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.Base64;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 图标渲染器
+ * 把图标（包括自适应图标）直接绘制到目标尺寸，再编码为 PNG 或 WebP；
+ * 每个线程按目标尺寸复用同一个位图、画布和输出缓冲区，复用对象不属于某个渲染器实例，
+ * 每次调用新建的渲染器也能共用，批量渲染时不再为每个图标分配整图内存
+ */
+public class IconRenderer {
+
+    /**
+     * 输出格式
+     */
+    public enum Format {
+        PNG(".png", "image/png"),
+        // 有损 WebP，体积最小，适合列表缩略图
+        WEBP(".webp", "image/webp"),
+        WEBP_LOSSLESS(".webp", "image/webp");
+
+        public final String extension;
+        public final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+
+        /**
+         * 参数名称对应的格式：png、webp、webp_lossless
+         * @throws IllegalArgumentException 未知格式
+         */
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().toLowerCase(Locale.US).equals(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("未知的图标格式: " + name);
+        }
+    }
+
+    /**
+     * 可以直接读取内部数组的输出流，避免编码 base64 前再复制一次
+     */
+    private static final class OutputBuffer extends ByteArrayOutputStream {
+        OutputBuffer() {
+            super(16 * 1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    /**
+     * 线程私有的复用对象
+     */
+    private static final class Scratch {
+        final Canvas canvas = new Canvas();
+        final OutputBuffer output = new OutputBuffer();
+        Bitmap bitmap;
+
+        /**
+         * 返回指定尺寸的空白位图，尺寸不变时复用上一次的位图
+         */
+        Bitmap obtainBitmap(int width, int height) {
+            if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+                bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                canvas.setBitmap(bitmap);
+            } else {
+                bitmap.eraseColor(Color.TRANSPARENT);
+            }
+            return bitmap;
+        }
+    }
+
+    // 每个线程最多保留的目标尺寸数，超过后清空，避免尺寸参数多变时占住大量位图
+    private static final int MAX_SCRATCH_SIZES = 4;
+
+    // 线程私有：目标尺寸（0 为原始尺寸）-> 复用对象
+    private static final ThreadLocal<Map<Integer, Scratch>> SCRATCH = new ThreadLocal<Map<Integer, Scratch>>() {
+        @Override
+        protected Map<Integer, Scratch> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    private final int size;
+    private final Format format;
+    private final int quality;
+
+    /**
+     * @param size 输出边长（像素），0 表示使用图标的原始尺寸
+     * @param quality 0-100，只对有损 WebP 有效
+     */
+    public IconRenderer(int size, Format format, int quality) {
+        this.size = Math.max(0, size);
+        this.format = format;
+        this.quality = Math.max(0, Math.min(100, quality));
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * 渲染并编码，返回编码后的数据副本（用于写入磁盘缓存）
+     * @return 无法渲染时返回 null
+     */
+    public byte[] encode(Drawable drawable) {
+        OutputBuffer output = render(drawable);
+        return output != null ? output.toByteArray() : null;
+    }
+
+    /**
+     * 渲染并编码为 data URI，直接从复用的缓冲区编码 base64
+     * @return 无法渲染时返回 null
+     */
+    public String encodeDataUri(Drawable drawable) {
+        OutputBuffer output = render(drawable);
+        if (output == null) {
+            return null;
+        }
+        return "data:" + format.mimeType + ";base64,"
+                + Base64.encodeToString(output.array(), 0, output.size(), Base64.NO_WRAP);
+    }
+
+    private static Scratch obtainScratch(int size) {
+        Map<Integer, Scratch> scratches = SCRATCH.get();
+        Scratch local = scratches.get(size);
+        if (local == null) {
+            if (scratches.size() >= MAX_SCRATCH_SIZES) {
+                scratches.clear();
+            }
+            local = new Scratch();
+            scratches.put(size, local);
+        }
+        return local;
+    }
+
+    private OutputBuffer render(Drawable drawable) {
+        Scratch local = obtainScratch(size);
+        Bitmap bitmap;
+        if (size == 0 && drawable instanceof BitmapDrawable) {
+            // 原始尺寸的位图图标直接编码
+            bitmap = ((BitmapDrawable) drawable).getBitmap();
+        } else {
+            int width = size > 0 ? size : drawable.getIntrinsicWidth();
+            int height = size > 0 ? size : drawable.getIntrinsicHeight();
+            if (width <= 0 || height <= 0) {
+                return null;
+            }
+            bitmap = local.obtainBitmap(width, height);
+            drawable.setBounds(0, 0, width, height);
+            drawable.draw(local.canvas);
+        }
+
+        local.output.reset();
+        if (!bitmap.compress(compressFormat(), format == Format.WEBP ? quality : 100, local.output)) {
+            return null;
+        }
+        return local.output;
+    }
+
+    @SuppressWarnings("deprecation")
+    private Bitmap.CompressFormat compressFormat() {
+        switch (format) {
+            case WEBP:
+                return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                        ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+            case WEBP_LOSSLESS:
+                // Android 11 之前只有 WEBP，质量 100 时接近无损
+                return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                        ? Bitmap.CompressFormat.WEBP_LOSSLESS : Bitmap.CompressFormat.WEBP;
+            default:
+                return Bitmap.CompressFormat.PNG;
+        }
+    }
+}
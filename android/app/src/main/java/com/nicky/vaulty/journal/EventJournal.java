@@ -0,0 +1,477 @@
+package com.nicky.vaulty.journal;
+
+import com.nicky.vaulty.usage.PackageDictionary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 追加写入的应用使用事件日志
+ * 系统只保留有限时间的 UsageEvents，日志把事件保存在应用自己的存储中：
+ * 每天（UTC）一个段文件，记录定长 {@value #RECORD_SIZE} 字节（时间戳、包名索引、类名索引、事件类型），
+ * 包名和类名存放在只追加的字符串字典中；每个段另有稀疏时间索引，
+ * 每 {@value #INDEX_INTERVAL} 条记录一项，范围读取时定位后通过内存映射顺序扫描
+ */
+public class EventJournal {
+    public static final int RECORD_SIZE = 20;
+    static final int INDEX_INTERVAL = 256;
+    private static final int INDEX_ENTRY_SIZE = 12;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    // 版本 1 只记录 coveredUntil，版本 2 增加 coveredFrom
+    private static final int META_VERSION = 2;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String DICTIONARY_FILE = "strings.dict";
+    private static final String META_FILE = "journal.meta";
+
+    /**
+     * 范围读取的回调，返回 false 时停止读取
+     */
+    public interface Visitor {
+        boolean visit(long timestamp, String packageName, String className, int eventType);
+    }
+
+    private final File dir;
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat("yyyyMMdd", Locale.US);
+    private final PackageDictionary strings = new PackageDictionary();
+    // 日志完整覆盖的范围 [coveredFrom, coveredUntil)，下次从 coveredUntil 继续采集
+    private long coveredFrom;
+    private long coveredUntil;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    // 当前追加中的段
+    private long openDay = Long.MIN_VALUE;
+    private long openRecordCount;
+    private DataOutputStream segmentOutput;
+    private DataOutputStream indexOutput;
+    private DataOutputStream dictionaryOutput;
+
+    public EventJournal(File dir) throws IOException {
+        this.dir = dir;
+        dayFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        dayFormat.setLenient(false);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("无法创建事件日志目录: " + dir.getAbsolutePath());
+        }
+        loadDictionary();
+        loadMeta();
+        recoverLastSegment();
+        recoverCoveredFrom();
+    }
+
+    /**
+     * 日志覆盖的范围起点，早于它的事件不在日志中（从未采集或已被压缩删除），日志为空时为 0
+     */
+    public synchronized long getCoveredFrom() {
+        return coveredFrom;
+    }
+
+    /**
+     * 已写入的范围终点，日志为空时为 0
+     */
+    public synchronized long getCoveredUntil() {
+        return coveredUntil;
+    }
+
+    /**
+     * 追加一个事件
+     * 早于 coveredUntil（已写入过）或早于最后一条记录的事件会被跳过
+     * @return 是否写入
+     */
+    public synchronized boolean append(long timestamp, String packageName, String className, int eventType)
+            throws IOException {
+        if (timestamp < coveredUntil || timestamp < lastTimestamp) {
+            return false;
+        }
+
+        // 先写字典，保证记录引用的索引在字典中一定存在
+        int packageIndex = internString(packageName);
+        int classIndex = className != null ? internString(className) : -1;
+
+        long day = timestamp / DAY_MILLIS;
+        if (day != openDay) {
+            openSegment(day);
+        }
+        if (openRecordCount % INDEX_INTERVAL == 0) {
+            indexOutput.writeLong(timestamp);
+            indexOutput.writeInt((int) openRecordCount);
+        }
+        segmentOutput.writeLong(timestamp);
+        segmentOutput.writeInt(packageIndex);
+        segmentOutput.writeInt(classIndex);
+        segmentOutput.writeInt(eventType);
+        openRecordCount++;
+        lastTimestamp = timestamp;
+        return true;
+    }
+
+    /**
+     * 提交本次追加，[rangeStart, rangeEnd) 内的事件已全部写入，此后不会再被写入
+     * 日志为空或与已覆盖的范围不连续时，覆盖范围从 rangeStart 重新开始
+     */
+    public synchronized void commit(long rangeStart, long rangeEnd) throws IOException {
+        flush();
+        if (rangeEnd > coveredUntil) {
+            if (coveredUntil == 0 || rangeStart > coveredUntil) {
+                coveredFrom = rangeStart;
+            }
+            coveredUntil = rangeEnd;
+            writeMeta();
+        }
+    }
+
+    /**
+     * 按时间顺序读取 [startTime, endTime) 内的事件
+     */
+    public synchronized void read(long startTime, long endTime, Visitor visitor) throws IOException {
+        if (endTime <= startTime) {
+            return;
+        }
+        flush();
+
+        long firstDay = startTime / DAY_MILLIS;
+        long lastDay = (endTime - 1) / DAY_MILLIS;
+        for (long day : listSegmentDays()) {
+            if (day < firstDay || day > lastDay) {
+                continue;
+            }
+            if (!readSegment(day, startTime, endTime, visitor)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 压缩日志：删除整天都早于 before 的段，修复截断的记录并重建缺失的索引
+     * 字典只随不同包名 / 类名的数量增长，不做重写
+     * @return 删除的段数
+     */
+    public synchronized int compact(long before) throws IOException {
+        closeSegment();
+        int removed = 0;
+        long cutoffDay = before / DAY_MILLIS;
+        for (long day : listSegmentDays()) {
+            if (day < cutoffDay) {
+                if (segmentFile(day).delete()) {
+                    removed++;
+                }
+                indexFile(day).delete();
+            } else {
+                repairSegment(day);
+            }
+        }
+        if (removed > 0 && coveredFrom < cutoffDay * DAY_MILLIS) {
+            coveredFrom = Math.min(cutoffDay * DAY_MILLIS, coveredUntil);
+            writeMeta();
+        }
+        return removed;
+    }
+
+    /**
+     * 段文件数量
+     */
+    public synchronized int getSegmentCount() {
+        return listSegmentDays().size();
+    }
+
+    /**
+     * 写入缓冲区并关闭当前段
+     */
+    public synchronized void close() throws IOException {
+        closeSegment();
+        if (dictionaryOutput != null) {
+            dictionaryOutput.close();
+            dictionaryOutput = null;
+        }
+    }
+
+    private boolean readSegment(long day, long startTime, long endTime, Visitor visitor) throws IOException {
+        File file = segmentFile(day);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long recordCount = channel.size() / RECORD_SIZE;
+            if (recordCount == 0) {
+                return true;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, recordCount * RECORD_SIZE);
+
+            int position = (int) (findStartRecord(day, startTime) * RECORD_SIZE);
+            int limit = (int) (recordCount * RECORD_SIZE);
+            for (; position < limit; position += RECORD_SIZE) {
+                long timestamp = buffer.getLong(position);
+                if (timestamp < startTime) {
+                    continue;
+                }
+                if (timestamp >= endTime) {
+                    return false;
+                }
+                int classIndex = buffer.getInt(position + 12);
+                if (!visitor.visit(timestamp,
+                        strings.nameAt(buffer.getInt(position + 8)),
+                        classIndex >= 0 ? strings.nameAt(classIndex) : null,
+                        buffer.getInt(position + 16))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 通过稀疏索引找到最后一个时间戳小于 startTime 的索引项，从该记录开始扫描
+     */
+    private long findStartRecord(long day, long startTime) throws IOException {
+        File file = indexFile(day);
+        if (!file.exists()) {
+            return 0;
+        }
+        long found = 0;
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            long entries = file.length() / INDEX_ENTRY_SIZE;
+            for (long i = 0; i < entries; i++) {
+                long timestamp = input.readLong();
+                int record = input.readInt();
+                if (timestamp >= startTime) {
+                    break;
+                }
+                found = record;
+            }
+        }
+        return found;
+    }
+
+    private int internString(String value) throws IOException {
+        int index = strings.indexOf(value);
+        if (index >= 0) {
+            return index;
+        }
+        if (dictionaryOutput == null) {
+            dictionaryOutput = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(new File(dir, DICTIONARY_FILE), true)));
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        dictionaryOutput.writeInt(bytes.length);
+        dictionaryOutput.write(bytes);
+        return strings.intern(value);
+    }
+
+    private void openSegment(long day) throws IOException {
+        closeSegment();
+        File file = segmentFile(day);
+        openDay = day;
+        openRecordCount = file.length() / RECORD_SIZE;
+        segmentOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        indexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile(day), true)));
+    }
+
+    private void closeSegment() throws IOException {
+        flush();
+        if (segmentOutput != null) {
+            segmentOutput.close();
+            indexOutput.close();
+            segmentOutput = null;
+            indexOutput = null;
+        }
+        openDay = Long.MIN_VALUE;
+    }
+
+    private void flush() throws IOException {
+        if (dictionaryOutput != null) {
+            dictionaryOutput.flush();
+        }
+        if (segmentOutput != null) {
+            segmentOutput.flush();
+            indexOutput.flush();
+        }
+    }
+
+    private void loadDictionary() throws IOException {
+        File file = new File(dir, DICTIONARY_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        long fileLength = file.length();
+        long validLength = 0;
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            while (validLength < fileLength) {
+                int length = input.readInt();
+                if (length < 0 || validLength + 4 + length > fileLength) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                input.readFully(bytes);
+                strings.intern(new String(bytes, StandardCharsets.UTF_8));
+                validLength += 4 + length;
+            }
+        } catch (EOFException e) {
+            // 读到文件末尾，或最后一项只写了一半
+        }
+        if (validLength < fileLength) {
+            truncate(file, validLength);
+        }
+    }
+
+    private void loadMeta() throws IOException {
+        File file = new File(dir, META_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            int version = input.readInt();
+            if (version == META_VERSION) {
+                coveredFrom = input.readLong();
+                coveredUntil = input.readLong();
+            } else if (version == 1) {
+                // 起点在 recoverLastSegment 中由第一条记录推算
+                coveredUntil = input.readLong();
+            }
+        } catch (EOFException e) {
+            coveredFrom = 0;
+            coveredUntil = 0;
+        }
+    }
+
+    private void writeMeta() throws IOException {
+        File file = new File(dir, META_FILE);
+        File temp = new File(dir, META_FILE + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(temp))) {
+            output.writeInt(META_VERSION);
+            output.writeLong(coveredFrom);
+            output.writeLong(coveredUntil);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("无法写入事件日志元数据: " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 修复最后一个段，并在写入记录后、提交前中断的情况下推进 coveredUntil，避免重复写入
+     */
+    private void recoverLastSegment() throws IOException {
+        List<Long> days = listSegmentDays();
+        if (days.isEmpty()) {
+            return;
+        }
+        long day = days.get(days.size() - 1);
+        repairSegment(day);
+
+        File file = segmentFile(day);
+        long recordCount = file.length() / RECORD_SIZE;
+        if (recordCount == 0) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek((recordCount - 1) * RECORD_SIZE);
+            lastTimestamp = raf.readLong();
+        }
+        if (lastTimestamp >= coveredUntil) {
+            coveredUntil = lastTimestamp + 1;
+            writeMeta();
+        }
+    }
+
+    /**
+     * 旧版本元数据或首次提交前中断时没有记录覆盖起点，保守地取第一条记录的时间戳
+     */
+    private void recoverCoveredFrom() throws IOException {
+        if (coveredFrom > 0 || coveredUntil == 0) {
+            return;
+        }
+        coveredFrom = coveredUntil;
+        List<Long> days = listSegmentDays();
+        if (!days.isEmpty()) {
+            File file = segmentFile(days.get(0));
+            if (file.length() >= RECORD_SIZE) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                    coveredFrom = raf.readLong();
+                }
+            }
+        }
+        writeMeta();
+    }
+
+    /**
+     * 截掉不完整的记录，索引项数不符时重建索引
+     */
+    private void repairSegment(long day) throws IOException {
+        File file = segmentFile(day);
+        long recordCount = file.length() / RECORD_SIZE;
+        if (file.length() != recordCount * RECORD_SIZE) {
+            truncate(file, recordCount * RECORD_SIZE);
+        }
+
+        File index = indexFile(day);
+        long expectedEntries = (recordCount + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+        if (index.length() == expectedEntries * INDEX_ENTRY_SIZE) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+             DataOutputStream output = new DataOutputStream(
+                     new BufferedOutputStream(new FileOutputStream(index)))) {
+            for (long record = 0; record < recordCount; record++) {
+                long timestamp = input.readLong();
+                input.skipBytes(RECORD_SIZE - 8);
+                if (record % INDEX_INTERVAL == 0) {
+                    output.writeLong(timestamp);
+                    output.writeInt((int) record);
+                }
+            }
+        }
+    }
+
+    private List<Long> listSegmentDays() {
+        List<Long> days = new ArrayList<>();
+        String[] names = dir.list();
+        if (names == null) {
+            return days;
+        }
+        for (String name : names) {
+            if (!name.endsWith(SEGMENT_SUFFIX)) {
+                continue;
+            }
+            try {
+                long time = dayFormat.parse(name.substring(0, name.length() - SEGMENT_SUFFIX.length())).getTime();
+                days.add(time / DAY_MILLIS);
+            } catch (ParseException e) {
+                // 忽略无关文件
+            }
+        }
+        Collections.sort(days);
+        return days;
+    }
+
+    private File segmentFile(long day) {
+        return new File(dir, dayFormat.format(day * DAY_MILLIS) + SEGMENT_SUFFIX);
+    }
+
+    private File indexFile(long day) {
+        return new File(dir, dayFormat.format(day * DAY_MILLIS) + INDEX_SUFFIX);
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.nicky.vaulty.perf;
+
+/**
+ * 延迟直方图
+ * 按微秒的 2 的幂分桶（第 i 个桶为 [2^i, 2^(i+1)) 微秒），内存固定，分位数为所在桶的上界
+ */
+public class LatencyHistogram {
+    private static final int BUCKET_COUNT = 40;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    public synchronized void record(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(BUCKET_COUNT - 1, 63 - Long.numberOfLeadingZeros(micros));
+        buckets[bucket]++;
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public synchronized long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * 近似分位数（纳秒），不超过记录到的最大值
+     * @param quantile 0 到 1 之间
+     */
+    public synchronized long percentileNanos(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= Math.max(1, rank)) {
+                long upperNanos = (1L << (bucket + 1)) * 1000;
+                return Math.min(upperNanos, maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+}
@@ -0,0 +1,112 @@
+package com.nicky.vaulty.perf;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 性能统计：按名称记录计数器和延迟直方图
+ * 阶段 (Phase) 结束时把耗时计入同名直方图，并通过 Tracer 输出 systrace 区段
+ */
+public class PerfStats {
+
+    /**
+     * 区段输出，Android 上对应 android.os.Trace
+     */
+    public interface Tracer {
+        void beginSection(String name);
+
+        void endSection();
+    }
+
+    /**
+     * 计时阶段，配合 try-with-resources 使用，必须在开始的线程上结束
+     */
+    public final class Phase implements AutoCloseable {
+        private final String name;
+        private final long startNanos;
+
+        private Phase(String name) {
+            this.name = name;
+            tracer.beginSection(name);
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            record(name, System.nanoTime() - startNanos);
+            tracer.endSection();
+        }
+    }
+
+    private static final Tracer NO_TRACER = new Tracer() {
+        @Override
+        public void beginSection(String name) {
+        }
+
+        @Override
+        public void endSection() {
+        }
+    };
+
+    private final Tracer tracer;
+    private final Map<String, Long> counters = new TreeMap<>();
+    private final Map<String, LatencyHistogram> histograms = new TreeMap<>();
+    private long sinceMillis = System.currentTimeMillis();
+
+    public PerfStats() {
+        this(NO_TRACER);
+    }
+
+    public PerfStats(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    public Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    public void record(String name, long nanos) {
+        histogram(name).record(nanos);
+    }
+
+    public synchronized void increment(String name, long delta) {
+        Long value = counters.get(name);
+        counters.put(name, value != null ? value + delta : delta);
+    }
+
+    /**
+     * 计数器快照，按名称排序
+     */
+    public synchronized Map<String, Long> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    /**
+     * 直方图快照，按名称排序
+     */
+    public synchronized Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    /**
+     * 开始统计的时间
+     */
+    public synchronized long getSinceMillis() {
+        return sinceMillis;
+    }
+
+    public synchronized void reset() {
+        counters.clear();
+        histograms.clear();
+        sinceMillis = System.currentTimeMillis();
+    }
+
+    private synchronized LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            histograms.put(name, histogram);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,35 @@
+package com.nicky.vaulty.task;
+
+import com.nicky.vaulty.journal.EventJournal;
+
+/**
+ * 取消标记
+ * 由调度器在请求被取消时设置，长时间运行的扫描循环在每个事件上检查，尽早停止
+ */
+public class CancelToken {
+    // 永远不会被取消，用于不经过调度器的调用
+    public static final CancelToken NONE = new CancelToken();
+
+    private volatile boolean cancelled = false;
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * 包装事件遍历回调，取消后让扫描立即停止
+     */
+    public EventJournal.Visitor wrap(EventJournal.Visitor visitor) {
+        if (this == NONE) {
+            return visitor;
+        }
+        return (timestamp, packageName, className, eventType) ->
+                !cancelled && visitor.visit(timestamp, packageName, className, eventType);
+    }
+}
@@ -0,0 +1,271 @@
+package com.nicky.vaulty.task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 耗时请求调度器
+ * 请求在固定大小的线程池中按优先级执行（同一优先级先提交先执行），
+ * 调用方用请求 ID 取消请求；参数相同且仍在进行中的请求合并为一次执行，结果分发给每个调用方
+ *
+ * 合并的请求只有全部取消后才停止执行：尚未开始的直接出队，已开始的通过 CancelToken 让扫描尽早停止
+ */
+public class RequestScheduler<T> {
+    public static final String CODE_CANCELLED = "CANCELLED";
+
+    public enum Priority {
+        // 用户正在等待的小查询
+        HIGH,
+        NORMAL,
+        // 预取、回填等后台工作
+        LOW
+    }
+
+    /**
+     * 接收请求结果，每个调用方只会收到一次 resolve 或 reject
+     */
+    public interface Responder<T> {
+        void resolve(T result);
+
+        void reject(String message, String code);
+
+        default void reject(String message) {
+            reject(message, null);
+        }
+    }
+
+    /**
+     * 在工作线程上执行的请求，必须通过 responder 返回结果，并在扫描中检查 token
+     */
+    public interface Task<T> {
+        void run(CancelToken token, Responder<T> responder);
+    }
+
+    private static final class Subscriber<T> {
+        final String requestId;
+        final Responder<T> responder;
+
+        Subscriber(String requestId, Responder<T> responder) {
+            this.requestId = requestId;
+            this.responder = responder;
+        }
+    }
+
+    /**
+     * 一次实际执行，可能对应多个合并的调用方
+     */
+    private final class Job implements Runnable, Comparable<Job>, Responder<T> {
+        final String key;
+        final long sequence;
+        final Task<T> task;
+        final CancelToken token = new CancelToken();
+        final List<Subscriber<T>> subscribers = new ArrayList<>(1);
+        Priority priority;
+        boolean started = false;
+        boolean finished = false;
+
+        Job(String key, Priority priority, long sequence, Task<T> task) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int result = priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public void run() {
+            synchronized (RequestScheduler.this) {
+                if (finished || started) {
+                    return;
+                }
+                started = true;
+                running++;
+            }
+            try {
+                task.run(token, this);
+            } catch (RuntimeException e) {
+                reject(e.getMessage() != null ? e.getMessage() : e.toString(), null);
+            } finally {
+                synchronized (RequestScheduler.this) {
+                    running--;
+                }
+                // 任务没有返回结果时也要让调用方结束等待
+                if (token.isCancelled()) {
+                    reject("请求已取消", CODE_CANCELLED);
+                } else {
+                    reject("请求没有返回结果", null);
+                }
+            }
+        }
+
+        @Override
+        public void resolve(T result) {
+            for (Subscriber<T> subscriber : finish()) {
+                subscriber.responder.resolve(result);
+            }
+        }
+
+        @Override
+        public void reject(String message, String code) {
+            for (Subscriber<T> subscriber : finish()) {
+                subscriber.responder.reject(message, code);
+            }
+        }
+
+        /**
+         * 标记结束并取出全部调用方，之后的结果被忽略
+         */
+        private List<Subscriber<T>> finish() {
+            synchronized (RequestScheduler.this) {
+                if (finished) {
+                    return new ArrayList<>();
+                }
+                markFinished(this);
+                List<Subscriber<T>> result = new ArrayList<>(subscribers);
+                for (Subscriber<T> subscriber : subscribers) {
+                    requests.remove(subscriber.requestId);
+                }
+                subscribers.clear();
+                return result;
+            }
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    // 合并键 -> 进行中的执行
+    private final Map<String, Job> inFlight = new HashMap<>();
+    // 请求 ID -> 所属的执行
+    private final Map<String, Job> requests = new HashMap<>();
+    private long nextSequence = 0;
+    private int running = 0;
+
+    /**
+     * @param threads 工作线程数，空闲一段时间后线程会退出
+     */
+    public RequestScheduler(int threads, String threadName) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, threadName + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交请求
+     * @param requestId 调用方指定的请求 ID，用于取消；为 null 时生成内部 ID，调用方无法取消
+     * @param key 合并键，参数相同的请求使用相同的键；为 null 表示不合并
+     * @return 合并到已有的执行时返回 true
+     * @throws IllegalArgumentException 请求 ID 与进行中的请求重复
+     */
+    public synchronized boolean submit(String requestId, String key, Priority priority, Task<T> task,
+                                       Responder<T> responder) {
+        long sequence = nextSequence++;
+        String id = requestId != null ? requestId : "#" + sequence;
+        if (requests.containsKey(id)) {
+            throw new IllegalArgumentException("请求 ID 重复: " + id);
+        }
+
+        Job job = key != null ? inFlight.get(key) : null;
+        boolean joined = job != null;
+        if (joined) {
+            if (!job.started && priority.compareTo(job.priority) < 0 && executor.remove(job)) {
+                // 尚未开始的执行按合并后的最高优先级重新排队
+                job.priority = priority;
+                executor.execute(job);
+            }
+        } else {
+            job = new Job(key, priority, sequence, task);
+            if (key != null) {
+                inFlight.put(key, job);
+            }
+        }
+        job.subscribers.add(new Subscriber<>(id, responder));
+        requests.put(id, job);
+        if (!joined) {
+            executor.execute(job);
+        }
+        return joined;
+    }
+
+    /**
+     * 取消请求，调用方以 CODE_CANCELLED 被拒绝
+     * @return 请求不存在或已结束时返回 false
+     */
+    public boolean cancel(String requestId) {
+        Subscriber<T> removed = null;
+        synchronized (this) {
+            Job job = requests.remove(requestId);
+            if (job == null) {
+                return false;
+            }
+            for (int i = 0; i < job.subscribers.size(); i++) {
+                if (job.subscribers.get(i).requestId.equals(requestId)) {
+                    removed = job.subscribers.remove(i);
+                    break;
+                }
+            }
+            if (job.subscribers.isEmpty()) {
+                // 没有调用方还在等待，停止执行
+                job.token.cancel();
+                markFinished(job);
+                executor.remove(job);
+            }
+        }
+        if (removed != null) {
+            removed.responder.reject("请求已取消", CODE_CANCELLED);
+        }
+        return removed != null;
+    }
+
+    /**
+     * 取消全部请求，例如插件销毁时
+     */
+    public void cancelAll() {
+        List<String> requestIds;
+        synchronized (this) {
+            requestIds = new ArrayList<>(requests.keySet());
+        }
+        for (String requestId : requestIds) {
+            cancel(requestId);
+        }
+    }
+
+    private void markFinished(Job job) {
+        job.finished = true;
+        if (job.key != null && inFlight.get(job.key) == job) {
+            inFlight.remove(job.key);
+        }
+    }
+
+    /**
+     * 排队中尚未开始的执行数
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,94 @@
+package com.nicky.vaulty.usage;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 紧凑事件编码器
+ * 包名和类名放入字典，每个事件编码为一行：
+ *   [事件类型 1 字节][包名索引 varint][类名索引+1 varint，0 表示无类名][时间戳增量 zigzag varint]
+ * 时间戳增量相对上一个事件（第一个事件相对 baseTimestamp）
+ * JS 侧解码见 app-usage.capacitor.ts 中的 decodeCompactEvents
+ */
+public class CompactEventEncoder {
+    public static final int FORMAT_VERSION = 1;
+
+    private final PackageDictionary packages = new PackageDictionary();
+    private final PackageDictionary classes = new PackageDictionary();
+
+    private byte[] buffer;
+    private int length = 0;
+    private int count = 0;
+    private long baseTimestamp = 0;
+    private long lastTimestamp = 0;
+
+    public CompactEventEncoder() {
+        this(4096);
+    }
+
+    public CompactEventEncoder(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public void add(String packageName, String className, long timestamp, int eventType) {
+        if (count == 0) {
+            baseTimestamp = timestamp;
+            lastTimestamp = timestamp;
+        }
+        ensureCapacity(1 + 5 + 5 + 10);
+
+        buffer[length++] = (byte) eventType;
+        writeVarint(packages.intern(packageName));
+        writeVarint(className == null ? 0 : classes.intern(className) + 1);
+        long delta = timestamp - lastTimestamp;
+        writeVarint((delta << 1) ^ (delta >> 63));
+
+        lastTimestamp = timestamp;
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getBaseTimestamp() {
+        return baseTimestamp;
+    }
+
+    public List<String> getPackages() {
+        return packages.names();
+    }
+
+    public List<String> getClasses() {
+        return classes.names();
+    }
+
+    /**
+     * 编码结果（只读），有效长度为 getLength()
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.nicky.vaulty.usage;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 事件查询的过滤和字段投影，在原生扫描循环中应用，只把需要的行和列传给 JS
+ * 事件类型用位掩码表示，第 n 位对应类型值 n
+ */
+public class EventFilter {
+    public static final int FIELD_PACKAGE_NAME = 1;
+    public static final int FIELD_CLASS_NAME = 1 << 1;
+    public static final int FIELD_TIMESTAMP = 1 << 2;
+    public static final int FIELD_EVENT_TYPE = 1 << 3;
+    public static final int ALL_FIELDS = FIELD_PACKAGE_NAME | FIELD_CLASS_NAME | FIELD_TIMESTAMP | FIELD_EVENT_TYPE;
+
+    public static final long DEFAULT_EVENT_TYPES =
+            maskOf(EventTypes.ACTIVITY_RESUMED) | maskOf(EventTypes.ACTIVITY_PAUSED);
+
+    /**
+     * 默认过滤：全部应用的前台事件，返回全部字段
+     */
+    public static final EventFilter FOREGROUND = new EventFilter(null, null, DEFAULT_EVENT_TYPES, ALL_FIELDS);
+
+    // null 表示不限制
+    private final Set<String> includedPackages;
+    private final Set<String> excludedPackages;
+    private final long eventTypeMask;
+    private final int fields;
+
+    public EventFilter(Set<String> includedPackages, Set<String> excludedPackages, long eventTypeMask, int fields) {
+        this.includedPackages = includedPackages;
+        this.excludedPackages = excludedPackages;
+        this.eventTypeMask = eventTypeMask;
+        this.fields = fields;
+    }
+
+    /**
+     * 根据查询参数创建过滤条件，参数为 null 时使用默认值
+     * @throws IllegalArgumentException 事件类型或字段名称未知
+     */
+    public static EventFilter of(Collection<String> packageNames, Collection<String> excludePackageNames,
+                                 Collection<String> eventTypeNames, Collection<String> fieldNames) {
+        long mask = DEFAULT_EVENT_TYPES;
+        if (eventTypeNames != null) {
+            mask = 0;
+            for (String name : eventTypeNames) {
+                int eventType = EventTypes.valueOf(name);
+                if (eventType < 0) {
+                    throw new IllegalArgumentException("未知的事件类型: " + name);
+                }
+                mask |= maskOf(eventType);
+            }
+        }
+
+        int fields = ALL_FIELDS;
+        if (fieldNames != null) {
+            fields = 0;
+            for (String name : fieldNames) {
+                fields |= fieldOf(name);
+            }
+        }
+
+        return new EventFilter(
+                packageNames != null ? new HashSet<>(packageNames) : null,
+                excludePackageNames != null && !excludePackageNames.isEmpty()
+                        ? new HashSet<>(excludePackageNames) : null,
+                mask, fields);
+    }
+
+    public static long maskOf(int eventType) {
+        return eventType >= 0 && eventType < 64 ? 1L << eventType : 0;
+    }
+
+    private static int fieldOf(String name) {
+        switch (name) {
+            case "packageName":
+                return FIELD_PACKAGE_NAME;
+            case "className":
+                return FIELD_CLASS_NAME;
+            case "timestamp":
+                return FIELD_TIMESTAMP;
+            case "eventType":
+                return FIELD_EVENT_TYPE;
+            default:
+                throw new IllegalArgumentException("未知的字段: " + name);
+        }
+    }
+
+    /**
+     * 事件是否需要返回；先判断类型位掩码，绝大多数不需要的事件不会进入集合查找
+     */
+    public boolean accepts(String packageName, int eventType) {
+        if ((eventTypeMask & maskOf(eventType)) == 0) {
+            return false;
+        }
+        if (includedPackages != null && !includedPackages.contains(packageName)) {
+            return false;
+        }
+        return excludedPackages == null || !excludedPackages.contains(packageName);
+    }
+
+    public boolean includes(int field) {
+        return (fields & field) != 0;
+    }
+
+    public long getEventTypeMask() {
+        return eventTypeMask;
+    }
+
+    public int getFields() {
+        return fields;
+    }
+}
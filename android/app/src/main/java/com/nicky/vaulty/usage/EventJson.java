@@ -0,0 +1,43 @@
+package com.nicky.vaulty.usage;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 事件的 JSON 表示，与 JS 侧的 AppUsageEvent 结构一致
+ */
+public final class EventJson {
+
+    private EventJson() {
+    }
+
+    public static JSONObject toJson(String packageName, String className, long timestamp, int eventType) {
+        return toJson(packageName, className, timestamp, eventType, EventFilter.ALL_FIELDS);
+    }
+
+    /**
+     * 只包含 fields（EventFilter.FIELD_* 的组合）中的字段
+     */
+    public static JSONObject toJson(String packageName, String className, long timestamp, int eventType,
+                                    int fields) {
+        JSONObject eventObject = new JSONObject();
+        try {
+            if ((fields & EventFilter.FIELD_PACKAGE_NAME) != 0) {
+                eventObject.put("packageName", packageName);
+            }
+            if ((fields & EventFilter.FIELD_CLASS_NAME) != 0) {
+                eventObject.put("className", className);
+            }
+            if ((fields & EventFilter.FIELD_TIMESTAMP) != 0) {
+                eventObject.put("timestamp", timestamp);
+            }
+            if ((fields & EventFilter.FIELD_EVENT_TYPE) != 0) {
+                eventObject.put("eventType", EventTypes.nameOf(eventType));
+            }
+        } catch (JSONException e) {
+            // 键都不为空，不会发生
+            throw new IllegalStateException(e);
+        }
+        return eventObject;
+    }
+}
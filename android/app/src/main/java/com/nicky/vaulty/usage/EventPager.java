@@ -0,0 +1,95 @@
+package com.nicky.vaulty.usage;
+
+/**
+ * 事件分页器
+ * 续传令牌由最后一个已返回事件的时间戳，以及该时间戳下已返回的事件数组成，
+ * 这样同一毫秒内有多个事件时也能准确续传
+ */
+public class EventPager {
+    private static final char SEPARATOR = ':';
+
+    private final long resumeTimestamp;
+    private final int resumeOffset;
+    private final int pageSize;
+
+    private int skipped = 0;
+    private int emitted = 0;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private int lastTimestampCount = 0;
+
+    /**
+     * @param cursor   上一页返回的续传令牌，首页传 null
+     * @param pageSize 每页最多返回的事件数
+     */
+    public EventPager(String cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize 必须大于 0");
+        }
+        this.pageSize = pageSize;
+        if (cursor == null || cursor.isEmpty()) {
+            this.resumeTimestamp = Long.MIN_VALUE;
+            this.resumeOffset = 0;
+        } else {
+            int separator = cursor.indexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new IllegalArgumentException("无效的续传令牌: " + cursor);
+            }
+            try {
+                this.resumeTimestamp = Long.parseLong(cursor.substring(0, separator));
+                this.resumeOffset = Integer.parseInt(cursor.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的续传令牌: " + cursor);
+            }
+        }
+    }
+
+    /**
+     * 续传时应从该时间戳开始扫描
+     */
+    public long scanStart(long startTime) {
+        return Math.max(startTime, resumeTimestamp);
+    }
+
+    /**
+     * 判断事件是否已在上一页返回过，需要跳过
+     */
+    public boolean shouldSkip(long timestamp) {
+        if (timestamp < resumeTimestamp) {
+            return true;
+        }
+        if (timestamp == resumeTimestamp && skipped < resumeOffset) {
+            skipped++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 记录一个已返回的事件
+     */
+    public void onEmitted(long timestamp) {
+        if (timestamp == lastTimestamp) {
+            lastTimestampCount++;
+        } else {
+            lastTimestamp = timestamp;
+            // 续传页的第一个同时间戳事件要接着上一页的计数
+            lastTimestampCount = timestamp == resumeTimestamp ? resumeOffset + 1 : 1;
+        }
+        emitted++;
+    }
+
+    public boolean isFull() {
+        return emitted >= pageSize;
+    }
+
+    public int getEmittedCount() {
+        return emitted;
+    }
+
+    /**
+     * 下一页的续传令牌
+     */
+    public String nextCursor() {
+        return lastTimestamp + String.valueOf(SEPARATOR) + lastTimestampCount;
+    }
+}
@@ -0,0 +1,72 @@
+package com.nicky.vaulty.usage;
+
+/**
+ * 使用事件类型常量
+ * 数值与 android.app.usage.UsageEvents.Event 保持一致，便于在纯 Java 代码中使用
+ */
+public final class EventTypes {
+    public static final int ACTIVITY_RESUMED = 1;
+    public static final int ACTIVITY_PAUSED = 2;
+    public static final int SCREEN_INTERACTIVE = 15;
+    public static final int SCREEN_NON_INTERACTIVE = 16;
+    public static final int KEYGUARD_SHOWN = 17;
+    public static final int KEYGUARD_HIDDEN = 18;
+    public static final int FOREGROUND_SERVICE_START = 19;
+    public static final int FOREGROUND_SERVICE_STOP = 20;
+
+    // 可以按名称查询的事件类型
+    private static final int[] NAMED_TYPES = {
+            ACTIVITY_RESUMED, ACTIVITY_PAUSED,
+            SCREEN_INTERACTIVE, SCREEN_NON_INTERACTIVE,
+            KEYGUARD_SHOWN, KEYGUARD_HIDDEN,
+            FOREGROUND_SERVICE_START, FOREGROUND_SERVICE_STOP,
+    };
+
+    private EventTypes() {
+    }
+
+    /**
+     * 是否是应用进入或退出前台的事件
+     */
+    public static boolean isForeground(int eventType) {
+        return eventType == ACTIVITY_RESUMED || eventType == ACTIVITY_PAUSED;
+    }
+
+    /**
+     * 事件类型对应的名称（与 JS 侧的 eventType 字符串一致）
+     */
+    public static String nameOf(int eventType) {
+        switch (eventType) {
+            case ACTIVITY_RESUMED:
+                return "ACTIVITY_RESUMED";
+            case ACTIVITY_PAUSED:
+                return "ACTIVITY_PAUSED";
+            case SCREEN_INTERACTIVE:
+                return "SCREEN_INTERACTIVE";
+            case SCREEN_NON_INTERACTIVE:
+                return "SCREEN_NON_INTERACTIVE";
+            case KEYGUARD_SHOWN:
+                return "KEYGUARD_SHOWN";
+            case KEYGUARD_HIDDEN:
+                return "KEYGUARD_HIDDEN";
+            case FOREGROUND_SERVICE_START:
+                return "FOREGROUND_SERVICE_START";
+            case FOREGROUND_SERVICE_STOP:
+                return "FOREGROUND_SERVICE_STOP";
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * 名称对应的事件类型，未知名称返回 -1
+     */
+    public static int valueOf(String name) {
+        for (int eventType : NAMED_TYPES) {
+            if (nameOf(eventType).equals(name)) {
+                return eventType;
+            }
+        }
+        return -1;
+    }
+}
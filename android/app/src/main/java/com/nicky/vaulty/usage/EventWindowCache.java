@@ -0,0 +1,336 @@
+package com.nicky.vaulty.usage;
+
+import com.nicky.vaulty.journal.EventJournal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 已结束时间窗口的事件缓存
+ * 系统中早于当前小时的事件不会再变化，按整点小时窗口缓存解码后的事件块，
+ * 范围查询时已结束的窗口从缓存读取，连续未命中的窗口合并为一次系统查询（最多 {@value #MAX_LOAD_WINDOWS} 个窗口），
+ * 只有仍在进行中的尾部窗口每次都访问系统；总大小（含去重字符串表）超过上限时按最近最少使用的顺序淘汰
+ */
+public class EventWindowCache {
+    public static final long WINDOW_MILLIS = 60L * 60 * 1000;
+    // 一次系统查询最多加载的窗口数，长范围分多次加载，内存占用与范围长度无关
+    static final int MAX_LOAD_WINDOWS = 24;
+
+    // 每个事件块的固定开销和每个事件的估算字节数（时间戳、类型、两个字符串引用）
+    private static final long BLOCK_OVERHEAD_BYTES = 96;
+    private static final long EVENT_BYTES = 8 + 4 + 4 + 4;
+    // 去重字符串表每项的估算开销（哈希表项和 String 对象），字符另按每个 2 字节计算
+    static final long STRING_ENTRY_OVERHEAD_BYTES = 64;
+    // 超出上限且上次重建后新增的字符串超过上限的该比例时，按剩余窗口重建字符串表，去掉只被已淘汰窗口引用的字符串
+    private static final int STRING_REBUILD_DIVISOR = 4;
+
+    /**
+     * 事件来源，按时间顺序把 [startTime, endTime) 内的全部事件交给 visitor
+     */
+    public interface Source {
+        void scan(long startTime, long endTime, EventJournal.Visitor visitor);
+    }
+
+    /**
+     * 一个窗口内的事件，按时间戳升序排列
+     */
+    private static final class Block {
+        final long[] timestamps;
+        final int[] eventTypes;
+        final String[] packageNames;
+        final String[] classNames;
+
+        Block(long[] timestamps, int[] eventTypes, String[] packageNames, String[] classNames) {
+            this.timestamps = timestamps;
+            this.eventTypes = eventTypes;
+            this.packageNames = packageNames;
+            this.classNames = classNames;
+        }
+
+        long sizeBytes() {
+            return BLOCK_OVERHEAD_BYTES + timestamps.length * EVENT_BYTES;
+        }
+
+        /**
+         * 遍历 [startTime, endTime) 内的事件，visitor 要求停止时返回 false
+         */
+        boolean visit(long startTime, long endTime, EventJournal.Visitor visitor) {
+            int index = Arrays.binarySearch(timestamps, startTime);
+            if (index < 0) {
+                index = -index - 1;
+            } else {
+                // 时间戳相同的事件可能有多个，回退到第一个
+                while (index > 0 && timestamps[index - 1] == startTime) {
+                    index--;
+                }
+            }
+            for (; index < timestamps.length && timestamps[index] < endTime; index++) {
+                if (!visitor.visit(timestamps[index], packageNames[index], classNames[index],
+                        eventTypes[index])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 加载连续窗口时按窗口切分事件
+     */
+    private final class BlockBuilder implements EventJournal.Visitor {
+        private final long startTime;
+        private final Block[] blocks;
+        private int window = 0;
+        private int count = 0;
+        private long[] timestamps = new long[64];
+        private int[] eventTypes = new int[64];
+        private String[] packageNames = new String[64];
+        private String[] classNames = new String[64];
+
+        BlockBuilder(long startTime, int windowCount) {
+            this.startTime = startTime;
+            this.blocks = new Block[windowCount];
+        }
+
+        @Override
+        public boolean visit(long timestamp, String packageName, String className, int eventType) {
+            // 窗口下标只增不减，时间戳超出范围或倒退的事件归入最近的窗口
+            int target = (int) Math.min(blocks.length - 1,
+                    Math.max(window, (timestamp - startTime) / WINDOW_MILLIS));
+            while (window < target) {
+                closeWindow();
+            }
+            if (count == timestamps.length) {
+                int capacity = count * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                eventTypes = Arrays.copyOf(eventTypes, capacity);
+                packageNames = Arrays.copyOf(packageNames, capacity);
+                classNames = Arrays.copyOf(classNames, capacity);
+            }
+            timestamps[count] = timestamp;
+            eventTypes[count] = eventType;
+            packageNames[count] = intern(packageName);
+            classNames[count] = intern(className);
+            count++;
+            return true;
+        }
+
+        private void closeWindow() {
+            blocks[window++] = new Block(Arrays.copyOf(timestamps, count), Arrays.copyOf(eventTypes, count),
+                    Arrays.copyOf(packageNames, count), Arrays.copyOf(classNames, count));
+            count = 0;
+        }
+
+        Block[] finish() {
+            while (window < blocks.length) {
+                closeWindow();
+            }
+            return blocks;
+        }
+    }
+
+    private final long maxBytes;
+
+    // 窗口起点 -> 事件块，按访问顺序排列（最久未使用的在前）
+    private final LinkedHashMap<Long, Block> blocks = new LinkedHashMap<>(64, 0.75f, true);
+    // 包名和类名去重，同一应用的事件共享字符串
+    private final Map<String, String> strings = new HashMap<>();
+    private long totalBytes = 0;
+    private long stringBytes = 0;
+    // 上次重建后字符串表的大小，重建的开销由之后新增的字符串分摊
+    private long retainedStringBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public EventWindowCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 早于该时间的窗口视为已结束：当前时间所在小时之前的整点
+     * @param settleMillis 整点后仍可能补写上一小时事件的时间，这段时间内上一小时也按进行中处理
+     */
+    public static long closedBefore(long now, long settleMillis) {
+        return windowStart(now - settleMillis);
+    }
+
+    public static long windowStart(long timestamp) {
+        long start = timestamp - timestamp % WINDOW_MILLIS;
+        return timestamp < 0 && start != timestamp ? start - WINDOW_MILLIS : start;
+    }
+
+    /**
+     * 按时间顺序遍历 [startTime, endTime) 内的事件
+     * @param closedBefore 该时间之前的窗口可以缓存，之后的部分每次直接从 source 读取
+     * @return visitor 要求停止时返回 false
+     */
+    public boolean read(long startTime, long endTime, long closedBefore, Source source,
+                        EventJournal.Visitor visitor) {
+        long window = windowStart(startTime);
+        while (window < endTime && window + WINDOW_MILLIS <= closedBefore) {
+            Block block = get(window);
+            if (block != null) {
+                if (!block.visit(startTime, endTime, visitor)) {
+                    return false;
+                }
+                window += WINDOW_MILLIS;
+                continue;
+            }
+
+            // 连续未命中的已结束窗口合并为一次查询
+            long runEnd = window + WINDOW_MILLIS;
+            long maxRunEnd = window + MAX_LOAD_WINDOWS * WINDOW_MILLIS;
+            while (runEnd < endTime && runEnd < maxRunEnd && runEnd + WINDOW_MILLIS <= closedBefore
+                    && !contains(runEnd)) {
+                runEnd += WINDOW_MILLIS;
+            }
+            Block[] loaded = load(window, runEnd, source);
+            // 先遍历再放入缓存，一次加载超过上限时前面的窗口可能已被淘汰
+            boolean completed = true;
+            for (int i = 0; i < loaded.length && completed; i++) {
+                completed = loaded[i].visit(startTime, endTime, visitor);
+            }
+            for (int i = 0; i < loaded.length; i++) {
+                put(window + i * WINDOW_MILLIS, loaded[i]);
+            }
+            if (!completed) {
+                return false;
+            }
+            window = runEnd;
+        }
+
+        if (window < endTime) {
+            // 进行中的尾部窗口不缓存
+            final boolean[] stopped = new boolean[1];
+            source.scan(Math.max(startTime, window), endTime, (timestamp, packageName, className, eventType) -> {
+                if (!visitor.visit(timestamp, packageName, className, eventType)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return true;
+            });
+            return !stopped[0];
+        }
+        return true;
+    }
+
+    private Block[] load(long startTime, long endTime, Source source) {
+        BlockBuilder builder = new BlockBuilder(startTime, (int) ((endTime - startTime) / WINDOW_MILLIS));
+        source.scan(startTime, endTime, builder);
+        Block[] loaded = builder.finish();
+        synchronized (this) {
+            misses += loaded.length;
+        }
+        return loaded;
+    }
+
+    private synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = strings.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        strings.put(value, value);
+        stringBytes += stringBytes(value);
+        return value;
+    }
+
+    static long stringBytes(String value) {
+        return STRING_ENTRY_OVERHEAD_BYTES + 2L * value.length();
+    }
+
+    private synchronized Block get(long window) {
+        Block block = blocks.get(window);
+        if (block != null) {
+            hits++;
+        }
+        return block;
+    }
+
+    private synchronized boolean contains(long window) {
+        return blocks.containsKey(window);
+    }
+
+    private synchronized void put(long window, Block block) {
+        Block previous = blocks.put(window, block);
+        if (previous != null) {
+            totalBytes -= previous.sizeBytes();
+        }
+        totalBytes += block.sizeBytes();
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        if (totalBytes + stringBytes <= maxBytes) {
+            return;
+        }
+        // 先去掉已淘汰窗口留下的字符串，仍然超出上限时再淘汰窗口
+        if (stringBytes - retainedStringBytes > maxBytes / STRING_REBUILD_DIVISOR) {
+            rebuildStrings();
+        }
+        Iterator<Map.Entry<Long, Block>> iterator = blocks.entrySet().iterator();
+        while (totalBytes + stringBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().getValue().sizeBytes();
+            iterator.remove();
+        }
+        if (blocks.isEmpty()) {
+            clearStrings();
+        }
+    }
+
+    /**
+     * 只保留仍被缓存窗口引用的字符串，已有的块继续引用同一对象，不影响去重
+     */
+    private void rebuildStrings() {
+        clearStrings();
+        for (Block block : blocks.values()) {
+            for (int i = 0; i < block.timestamps.length; i++) {
+                intern(block.packageNames[i]);
+                intern(block.classNames[i]);
+            }
+        }
+        retainedStringBytes = stringBytes;
+    }
+
+    private void clearStrings() {
+        strings.clear();
+        stringBytes = 0;
+        retainedStringBytes = 0;
+    }
+
+    /**
+     * 清空缓存，插件在系统时间或时区被修改后调用
+     */
+    public synchronized void clear() {
+        blocks.clear();
+        clearStrings();
+        totalBytes = 0;
+    }
+
+    public synchronized int getWindowCount() {
+        return blocks.size();
+    }
+
+    public synchronized long getSizeBytes() {
+        return totalBytes + stringBytes;
+    }
+
+    /**
+     * 从缓存读取的窗口数
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * 需要从系统加载的窗口数
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,135 @@
+package com.nicky.vaulty.usage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 前台应用跟踪器
+ * 按时间顺序接收增量事件，维护当前前台应用，并累计每个应用新增的前台时长；
+ * 每次 flush 只输出变化：前台应用切换（经过防抖）和自上次以来的时长增量
+ *
+ * 防抖：新的前台应用保持至少 debounceMillis 才通知切换，
+ * 同一应用内切换 Activity、或快速切出又切回时不会产生切换通知
+ */
+public class ForegroundTracker {
+
+    /**
+     * 变化输出回调
+     */
+    public interface Listener {
+        /**
+         * 前台应用切换，packageName 为 null 表示没有应用在前台（例如熄屏）
+         */
+        void onForegroundChanged(String packageName, long since, String previousPackageName);
+
+        /**
+         * 自上次输出以来各应用新增的前台时长（毫秒）
+         */
+        void onDurations(long timestamp, Map<String, Long> durations);
+    }
+
+    private final long debounceMillis;
+
+    // 按事件得到的前台应用及其进入前台的时间
+    private String currentPackage;
+    private long currentSince;
+    // 已通知给监听者的前台应用
+    private String reportedPackage;
+    private long reportedSince;
+
+    // 开始累计之前只更新状态，用于启动时根据历史事件确定当前前台应用
+    private boolean accruing = false;
+    private long accruedUntil;
+    private final Map<String, Long> pendingDurations = new LinkedHashMap<>();
+
+    public ForegroundTracker(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * 处理一个事件，事件必须按时间戳升序传入
+     */
+    public void accept(String packageName, int eventType, long timestamp) {
+        if (accruing) {
+            accrue(timestamp);
+        }
+        if (eventType == EventTypes.ACTIVITY_RESUMED && packageName != null) {
+            if (!packageName.equals(currentPackage)) {
+                currentPackage = packageName;
+                currentSince = timestamp;
+            }
+        } else if (eventType == EventTypes.ACTIVITY_PAUSED && packageName != null
+                && packageName.equals(currentPackage)) {
+            setIdle(timestamp);
+        } else if (eventType == EventTypes.SCREEN_NON_INTERACTIVE) {
+            setIdle(timestamp);
+        }
+    }
+
+    private void setIdle(long timestamp) {
+        if (currentPackage != null) {
+            currentPackage = null;
+            currentSince = timestamp;
+        }
+    }
+
+    /**
+     * 从 now 开始累计时长，此时的前台应用视为已通知
+     */
+    public void startAccruing(long now) {
+        accruing = true;
+        accruedUntil = now;
+        pendingDurations.clear();
+        reportedPackage = currentPackage;
+        reportedSince = currentSince;
+    }
+
+    /**
+     * 输出到 now 为止的变化
+     */
+    public void flush(long now, Listener listener) {
+        if (accruing) {
+            accrue(now);
+        }
+
+        if (!equals(currentPackage, reportedPackage)) {
+            if (now - currentSince >= debounceMillis) {
+                String previous = reportedPackage;
+                reportedPackage = currentPackage;
+                reportedSince = currentSince;
+                listener.onForegroundChanged(currentPackage, currentSince, previous);
+            }
+        }
+
+        if (!pendingDurations.isEmpty()) {
+            listener.onDurations(now, new LinkedHashMap<>(pendingDurations));
+            pendingDurations.clear();
+        }
+    }
+
+    private void accrue(long until) {
+        if (until <= accruedUntil) {
+            return;
+        }
+        if (currentPackage != null) {
+            Long duration = pendingDurations.get(currentPackage);
+            pendingDurations.put(currentPackage, (duration != null ? duration : 0) + until - accruedUntil);
+        }
+        accruedUntil = until;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * 已通知的前台应用，没有时为 null
+     */
+    public String getForegroundPackage() {
+        return reportedPackage;
+    }
+
+    public long getForegroundSince() {
+        return reportedSince;
+    }
+}
@@ -0,0 +1,170 @@
+package com.nicky.vaulty.usage;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * 按小时 / 按应用的使用时长聚合器
+ * 接收 SessionBuilder 输出的会话，把跨小时的会话按小时边界拆分，
+ * 累加到以包名索引为键的 long[] 数组中，不构建中间对象
+ */
+public class HourlyAggregator implements SessionBuilder.Sink {
+    private static final int INITIAL_APP_CAPACITY = 32;
+
+    private final long[] hourStarts;
+    private final int hourCount;
+    private final PackageDictionary packages = new PackageDictionary();
+
+    // 每小时总时长
+    private final long[] hourTotals;
+    // 每个应用的总时长和启动次数，下标为包名索引
+    private long[] appDurations = new long[INITIAL_APP_CAPACITY];
+    private int[] appLaunchCounts = new int[INITIAL_APP_CAPACITY];
+    private long[] appLastUsed = new long[INITIAL_APP_CAPACITY];
+    // 每小时每个应用的时长和使用次数，下标为 packageIndex * hourCount + hour
+    private long[] hourAppDurations;
+    private int[] hourAppCounts;
+
+    /**
+     * @param rangeStart 范围起点（应为整点）
+     * @param rangeEnd   范围终点
+     * @param timeZone   用于计算小时边界的时区（夏令时切换时一个桶不一定是 3600 秒）
+     */
+    public HourlyAggregator(long rangeStart, long rangeEnd, TimeZone timeZone) {
+        this.hourStarts = computeHourStarts(rangeStart, rangeEnd, timeZone);
+        this.hourCount = hourStarts.length - 1;
+        this.hourTotals = new long[hourCount];
+        this.hourAppDurations = new long[INITIAL_APP_CAPACITY * hourCount];
+        this.hourAppCounts = new int[INITIAL_APP_CAPACITY * hourCount];
+    }
+
+    @Override
+    public void onSession(UsageSession session) {
+        add(session.packageName, session.startTime, session.endTime, !session.clippedStart);
+    }
+
+    /**
+     * 累加一个会话
+     * @param countLaunch 是否计入启动次数（开始于范围之前的会话不算）
+     */
+    public void add(String packageName, long startTime, long endTime, boolean countLaunch) {
+        long start = Math.max(startTime, hourStarts[0]);
+        long end = Math.min(endTime, hourStarts[hourCount]);
+        if (end <= start) {
+            return;
+        }
+
+        int appIndex = packages.intern(packageName);
+        ensureAppCapacity(appIndex + 1);
+
+        appDurations[appIndex] += end - start;
+        if (countLaunch) {
+            appLaunchCounts[appIndex]++;
+        }
+        if (end > appLastUsed[appIndex]) {
+            appLastUsed[appIndex] = end;
+        }
+
+        int hour = hourIndexOf(start);
+        int base = appIndex * hourCount;
+        while (start < end && hour < hourCount) {
+            long segmentEnd = Math.min(end, hourStarts[hour + 1]);
+            long duration = segmentEnd - start;
+            if (duration > 0) {
+                hourTotals[hour] += duration;
+                hourAppDurations[base + hour] += duration;
+                hourAppCounts[base + hour]++;
+            }
+            start = segmentEnd;
+            hour++;
+        }
+    }
+
+    public int getHourCount() {
+        return hourCount;
+    }
+
+    public long getHourStart(int hour) {
+        return hourStarts[hour];
+    }
+
+    public long getHourTotal(int hour) {
+        return hourTotals[hour];
+    }
+
+    public PackageDictionary getPackages() {
+        return packages;
+    }
+
+    public long getAppDuration(int appIndex) {
+        return appDurations[appIndex];
+    }
+
+    public int getAppLaunchCount(int appIndex) {
+        return appLaunchCounts[appIndex];
+    }
+
+    public long getAppLastUsed(int appIndex) {
+        return appLastUsed[appIndex];
+    }
+
+    public long getHourAppDuration(int hour, int appIndex) {
+        return hourAppDurations[appIndex * hourCount + hour];
+    }
+
+    public int getHourAppCount(int hour, int appIndex) {
+        return hourAppCounts[appIndex * hourCount + hour];
+    }
+
+    /**
+     * 二分查找时间戳所在的小时下标
+     */
+    private int hourIndexOf(long timestamp) {
+        int index = Arrays.binarySearch(hourStarts, timestamp);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private void ensureAppCapacity(int required) {
+        if (required <= appDurations.length) {
+            return;
+        }
+        int capacity = Math.max(required, appDurations.length * 2);
+        appDurations = Arrays.copyOf(appDurations, capacity);
+        appLaunchCounts = Arrays.copyOf(appLaunchCounts, capacity);
+        appLastUsed = Arrays.copyOf(appLastUsed, capacity);
+        hourAppDurations = Arrays.copyOf(hourAppDurations, capacity * hourCount);
+        hourAppCounts = Arrays.copyOf(hourAppCounts, capacity * hourCount);
+    }
+
+    /**
+     * 计算 [rangeStart, rangeEnd) 内的小时边界，最后一个元素为 rangeEnd
+     * 夏令时结束时重复的本地小时合并为一个两小时的桶，保证每个桶的本地小时各不相同
+     */
+    static long[] computeHourStarts(long rangeStart, long rangeEnd, TimeZone timeZone) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(rangeStart);
+        int lastHour = calendar.get(Calendar.HOUR_OF_DAY);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        long[] starts = new long[Math.max(2, (int) ((rangeEnd - rangeStart) / 3_600_000L) + 3)];
+        int count = 0;
+        starts[count++] = rangeStart;
+        calendar.add(Calendar.HOUR_OF_DAY, 1);
+        while (calendar.getTimeInMillis() < rangeEnd) {
+            int hour = calendar.get(Calendar.HOUR_OF_DAY);
+            if (hour != lastHour) {
+                if (count == starts.length - 1) {
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                }
+                starts[count++] = calendar.getTimeInMillis();
+                lastHour = hour;
+            }
+            calendar.add(Calendar.HOUR_OF_DAY, 1);
+        }
+        starts[count++] = rangeEnd;
+        return Arrays.copyOf(starts, count);
+    }
+}
@@ -0,0 +1,49 @@
+package com.nicky.vaulty.usage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 包名字典
+ * 把包名（或类名等重复出现的字符串）映射为从 0 开始的连续整数索引，用于基于数组的聚合和紧凑编码
+ */
+public class PackageDictionary {
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * 获取包名的索引，不存在时分配新索引
+     */
+    public int intern(String packageName) {
+        Integer index = indexes.get(packageName);
+        if (index != null) {
+            return index;
+        }
+        int newIndex = names.size();
+        indexes.put(packageName, newIndex);
+        names.add(packageName);
+        return newIndex;
+    }
+
+    /**
+     * 获取包名的索引，不存在时返回 -1
+     */
+    public int indexOf(String packageName) {
+        Integer index = indexes.get(packageName);
+        return index != null ? index : -1;
+    }
+
+    public String nameAt(int index) {
+        return names.get(index);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public List<String> names() {
+        return names;
+    }
+}
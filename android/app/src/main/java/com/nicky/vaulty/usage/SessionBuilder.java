@@ -0,0 +1,118 @@
+package com.nicky.vaulty.usage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 会话重建器
+ * 将按时间排序的 ACTIVITY_RESUMED / ACTIVITY_PAUSED 事件配对为使用会话，
+ * 不依赖 Android 类，可以直接在 JVM 上做单元测试
+ *
+ * 边界处理：
+ * - 范围内某应用的第一个事件就是 PAUSED，说明会话开始于范围之前，起点截断为 rangeStart
+ * - 范围结束时仍处于前台的应用，终点截断为 rangeEnd
+ */
+public class SessionBuilder {
+
+    /**
+     * 会话输出回调
+     */
+    public interface Sink {
+        void onSession(UsageSession session);
+    }
+
+    private final long rangeStart;
+    private final long rangeEnd;
+    private final Sink sink;
+
+    // 当前处于前台的应用 -> 会话开始时间
+    private final Map<String, Long> openSessions = new LinkedHashMap<>();
+    // 范围内已经出现过 RESUMED / PAUSED 事件的应用
+    private final Set<String> seenPackages = new HashSet<>();
+
+    private int sessionCount = 0;
+    private boolean finished = false;
+
+    public SessionBuilder(long rangeStart, long rangeEnd, Sink sink) {
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.sink = sink;
+    }
+
+    /**
+     * 处理一个事件，事件必须按时间戳升序传入，非前台事件会被忽略
+     */
+    public void accept(String packageName, int eventType, long timestamp) {
+        // 只有前台事件参与配对，其他事件（如前台服务）不能让后面的 PAUSED 失去起点截断
+        if (finished || packageName == null || !EventTypes.isForeground(eventType)) {
+            return;
+        }
+
+        boolean firstSeen = seenPackages.add(packageName);
+
+        if (eventType == EventTypes.ACTIVITY_RESUMED) {
+            // 同一应用内切换 Activity 时可能连续出现 RESUMED，保留最早的开始时间
+            if (!openSessions.containsKey(packageName)) {
+                openSessions.put(packageName, timestamp);
+            }
+        } else if (eventType == EventTypes.ACTIVITY_PAUSED) {
+            Long startTime = openSessions.remove(packageName);
+            if (startTime != null) {
+                emit(packageName, startTime, timestamp, false, false);
+            } else if (firstSeen) {
+                // 会话开始于查询范围之前
+                emit(packageName, rangeStart, timestamp, true, false);
+            }
+        }
+    }
+
+    /**
+     * 结束处理，输出在范围结束时仍未结束的会话
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+
+        Iterator<Map.Entry<String, Long>> iterator = openSessions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            emit(entry.getKey(), entry.getValue(), rangeEnd, false, true);
+            iterator.remove();
+        }
+    }
+
+    public int getSessionCount() {
+        return sessionCount;
+    }
+
+    private void emit(String packageName, long startTime, long endTime,
+                      boolean clippedStart, boolean clippedEnd) {
+        // 只记录有效的会话（持续时间大于0）
+        if (endTime <= startTime) {
+            return;
+        }
+        sessionCount++;
+        sink.onSession(new UsageSession(packageName, startTime, endTime, clippedStart, clippedEnd));
+    }
+
+    /**
+     * 便捷方法：把事件列表直接转换为会话列表
+     */
+    public static List<UsageSession> build(long rangeStart, long rangeEnd,
+                                           String[] packageNames, int[] eventTypes, long[] timestamps) {
+        final List<UsageSession> sessions = new ArrayList<>();
+        SessionBuilder builder = new SessionBuilder(rangeStart, rangeEnd, sessions::add);
+        for (int i = 0; i < timestamps.length; i++) {
+            builder.accept(packageNames[i], eventTypes[i], timestamps[i]);
+        }
+        builder.finish();
+        return sessions;
+    }
+}
@@ -0,0 +1,152 @@
+package com.nicky.vaulty.usage;
+
+import com.nicky.vaulty.journal.EventJournal;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 分片并行扫描
+ * 把长时间范围切分为固定长度的分片，在有界线程池中并行查询，
+ * 再按分片顺序把事件交给 visitor，合并结果与一次顺序扫描完全相同，
+ * 跨分片的会话由下游（例如 SessionBuilder）按连续事件流自然拼接
+ *
+ * 同时在途的分片数不超过并行度的两倍，内存占用与总范围无关
+ */
+public class SlicedScanner {
+    public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    /**
+     * 分片合并进度，按分片顺序在调用线程上回调
+     */
+    public interface ProgressListener {
+        void onSliceCompleted(int completedSlices, int totalSlices, long sliceStart, long sliceEnd, int eventCount);
+    }
+
+    /**
+     * 一个分片内按时间顺序的事件
+     */
+    private static final class Slice implements EventJournal.Visitor {
+        final long startTime;
+        final long endTime;
+        int count = 0;
+        long[] timestamps = new long[256];
+        int[] eventTypes = new int[256];
+        String[] packageNames = new String[256];
+        String[] classNames = new String[256];
+
+        Slice(long startTime, long endTime) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        @Override
+        public boolean visit(long timestamp, String packageName, String className, int eventType) {
+            if (count == timestamps.length) {
+                int capacity = count * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                eventTypes = Arrays.copyOf(eventTypes, capacity);
+                packageNames = Arrays.copyOf(packageNames, capacity);
+                classNames = Arrays.copyOf(classNames, capacity);
+            }
+            timestamps[count] = timestamp;
+            eventTypes[count] = eventType;
+            packageNames[count] = packageName;
+            classNames[count] = className;
+            count++;
+            return true;
+        }
+
+        boolean replay(EventJournal.Visitor visitor) {
+            for (int i = 0; i < count; i++) {
+                if (!visitor.visit(timestamps[i], packageNames[i], classNames[i], eventTypes[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final int parallelism;
+
+    public SlicedScanner(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 默认并行度：可用核心数，最多 4 个
+     */
+    public static int defaultParallelism() {
+        return Math.min(4, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 按时间顺序遍历 [startTime, endTime) 内的事件
+     * @param sliceMillis 分片长度，分片从 startTime 开始对齐
+     * @return visitor 要求停止时返回 false
+     */
+    public boolean scan(long startTime, long endTime, long sliceMillis, EventWindowCache.Source source,
+                        EventJournal.Visitor visitor, ProgressListener listener) throws InterruptedException {
+        if (endTime <= startTime) {
+            return true;
+        }
+        if (sliceMillis <= 0) {
+            throw new IllegalArgumentException("sliceMillis 必须大于 0");
+        }
+        int totalSlices = (int) ((endTime - startTime + sliceMillis - 1) / sliceMillis);
+        int workers = Math.min(parallelism, totalSlices);
+
+        if (workers <= 1) {
+            // 只有一个分片或不允许并行时直接顺序扫描
+            for (int i = 0; i < totalSlices; i++) {
+                Slice slice = sliceAt(startTime, endTime, sliceMillis, i);
+                source.scan(slice.startTime, slice.endTime, slice);
+                if (!slice.replay(visitor)) {
+                    return false;
+                }
+                listener.onSliceCompleted(i + 1, totalSlices, slice.startTime, slice.endTime, slice.count);
+            }
+            return true;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        Deque<Future<Slice>> pending = new ArrayDeque<>();
+        int submitted = 0;
+        try {
+            for (int merged = 0; merged < totalSlices; merged++) {
+                while (submitted < totalSlices && pending.size() < workers * 2) {
+                    final Slice slice = sliceAt(startTime, endTime, sliceMillis, submitted++);
+                    pending.addLast(executor.submit(() -> {
+                        source.scan(slice.startTime, slice.endTime, slice);
+                        return slice;
+                    }));
+                }
+
+                Slice slice = pending.removeFirst().get();
+                if (!slice.replay(visitor)) {
+                    return false;
+                }
+                listener.onSliceCompleted(merged + 1, totalSlices, slice.startTime, slice.endTime, slice.count);
+            }
+            return true;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Slice sliceAt(long startTime, long endTime, long sliceMillis, int index) {
+        long sliceStart = startTime + index * sliceMillis;
+        return new Slice(sliceStart, Math.min(endTime, sliceStart + sliceMillis));
+    }
+}
@@ -0,0 +1,61 @@
+package com.nicky.vaulty.usage;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 日期与时间范围工具
+ */
+public final class TimeRanges {
+
+    private TimeRanges() {
+    }
+
+    /**
+     * 解析 YYYY-MM-DD 日期，返回当天的 [开始, 结束) 时间戳
+     */
+    public static long[] dayRange(String date, TimeZone timeZone) {
+        String[] parts = date.split("-");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("日期格式应为 YYYY-MM-DD: " + date);
+        }
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.clear();
+        calendar.set(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) - 1, Integer.parseInt(parts[2]));
+        long start = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return new long[] { start, calendar.getTimeInMillis() };
+    }
+
+    /**
+     * 时间戳对应的 YYYY-MM-DD 日期字符串
+     */
+    public static String dateOf(long timestamp, TimeZone timeZone) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(timestamp);
+        return String.format(Locale.US, "%04d-%02d-%02d",
+                calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * 时间戳对应的小时 (0-23)
+     */
+    public static int hourOf(long timestamp, TimeZone timeZone) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(timestamp);
+        return calendar.get(Calendar.HOUR_OF_DAY);
+    }
+
+    /**
+     * 指定日期某个本地小时 (0-23) 的开始时间戳
+     */
+    public static long hourStart(String date, int hour, TimeZone timeZone) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(dayRange(date, timeZone)[0]);
+        calendar.set(Calendar.HOUR_OF_DAY, hour);
+        return calendar.getTimeInMillis();
+    }
+}
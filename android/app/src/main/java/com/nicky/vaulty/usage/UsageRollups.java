@@ -0,0 +1,259 @@
+package com.nicky.vaulty.usage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * 持续维护的按天 / 按小时使用时长汇总
+ * 与 SessionBuilder 不同，未结束的会话不会在批次末尾被截断，而是保存下来，
+ * 下一批事件到达后继续配对，因此可以按任意批次增量地折叠事件
+ */
+public class UsageRollups {
+    private static final int FILE_VERSION = 1;
+    public static final int HOURS_PER_DAY = 24;
+
+    /**
+     * 单个应用在某一天的汇总
+     */
+    public static class AppDay {
+        final long[] hourDurations = new long[HOURS_PER_DAY];
+        final int[] hourCounts = new int[HOURS_PER_DAY];
+        long totalDuration;
+        int launchCount;
+        long lastUsed;
+
+        public long getHourDuration(int hour) {
+            return hourDurations[hour];
+        }
+
+        public int getHourCount(int hour) {
+            return hourCounts[hour];
+        }
+
+        public long getTotalDuration() {
+            return totalDuration;
+        }
+
+        public int getLaunchCount() {
+            return launchCount;
+        }
+
+        public long getLastUsed() {
+            return lastUsed;
+        }
+    }
+
+    private final TimeZone timeZone;
+    // 日期 (YYYY-MM-DD) -> 包名 -> 汇总，按日期排序
+    private final TreeMap<String, Map<String, AppDay>> days = new TreeMap<>();
+    // 当前处于前台的应用 -> 会话开始时间
+    private final Map<String, Long> openSessions = new LinkedHashMap<>();
+    // 已折叠事件的范围终点
+    private long foldedUntil;
+
+    public UsageRollups(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    public long getFoldedUntil() {
+        return foldedUntil;
+    }
+
+    public void setFoldedUntil(long foldedUntil) {
+        this.foldedUntil = foldedUntil;
+    }
+
+    /**
+     * 折叠一个事件，事件必须按时间戳升序传入
+     */
+    public void accept(String packageName, int eventType, long timestamp) {
+        if (packageName == null) {
+            return;
+        }
+        if (eventType == EventTypes.ACTIVITY_RESUMED) {
+            // 连续的 RESUMED 保留最早的开始时间
+            if (!openSessions.containsKey(packageName)) {
+                openSessions.put(packageName, timestamp);
+            }
+        } else if (eventType == EventTypes.ACTIVITY_PAUSED) {
+            Long startTime = openSessions.remove(packageName);
+            if (startTime != null) {
+                addSession(packageName, startTime, timestamp);
+            }
+        }
+    }
+
+    /**
+     * 把一个会话按本地时间拆分到各小时
+     */
+    public void addSession(String packageName, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            return;
+        }
+        Calendar calendar = Calendar.getInstance(timeZone);
+        long start = startTime;
+        boolean first = true;
+        while (start < endTime) {
+            calendar.setTimeInMillis(start);
+            String date = TimeRanges.dateOf(start, timeZone);
+            int hour = calendar.get(Calendar.HOUR_OF_DAY);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            calendar.add(Calendar.HOUR_OF_DAY, 1);
+            long segmentEnd = Math.min(endTime, calendar.getTimeInMillis());
+
+            AppDay appDay = appDay(date, packageName);
+            long duration = segmentEnd - start;
+            appDay.hourDurations[hour] += duration;
+            appDay.hourCounts[hour]++;
+            appDay.totalDuration += duration;
+            if (first) {
+                appDay.launchCount++;
+                first = false;
+            }
+            if (segmentEnd > appDay.lastUsed) {
+                appDay.lastUsed = segmentEnd;
+            }
+            start = segmentEnd;
+        }
+    }
+
+    /**
+     * 指定日期的汇总，没有数据时返回 null
+     */
+    public Map<String, AppDay> getDay(String date) {
+        return days.get(date);
+    }
+
+    /**
+     * [startDate, endDate] 内有数据的日期，升序
+     */
+    public List<String> getDates(String startDate, String endDate) {
+        return new ArrayList<>(days.subMap(startDate, true, endDate, true).keySet());
+    }
+
+    public Collection<String> getOpenPackages() {
+        return openSessions.keySet();
+    }
+
+    /**
+     * 删除早于 oldestDate 的日期
+     */
+    public void prune(String oldestDate) {
+        days.headMap(oldestDate).clear();
+        // 开始时间过早的未结束会话多半丢失了 PAUSED 事件，一并丢弃
+        long[] range = TimeRanges.dayRange(oldestDate, timeZone);
+        Iterator<Map.Entry<String, Long>> iterator = openSessions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue() < range[0]) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private AppDay appDay(String date, String packageName) {
+        Map<String, AppDay> apps = days.get(date);
+        if (apps == null) {
+            apps = new HashMap<>();
+            days.put(date, apps);
+        }
+        AppDay appDay = apps.get(packageName);
+        if (appDay == null) {
+            appDay = new AppDay();
+            apps.put(packageName, appDay);
+        }
+        return appDay;
+    }
+
+    /**
+     * 写入文件，先写临时文件再重命名
+     */
+    public void writeTo(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            output.writeInt(FILE_VERSION);
+            output.writeLong(foldedUntil);
+            output.writeInt(openSessions.size());
+            for (Map.Entry<String, Long> entry : openSessions.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeLong(entry.getValue());
+            }
+            output.writeInt(days.size());
+            for (Map.Entry<String, Map<String, AppDay>> day : days.entrySet()) {
+                output.writeUTF(day.getKey());
+                output.writeInt(day.getValue().size());
+                for (Map.Entry<String, AppDay> app : day.getValue().entrySet()) {
+                    AppDay appDay = app.getValue();
+                    output.writeUTF(app.getKey());
+                    output.writeInt(appDay.launchCount);
+                    output.writeLong(appDay.lastUsed);
+                    for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+                        output.writeLong(appDay.hourDurations[hour]);
+                        output.writeInt(appDay.hourCounts[hour]);
+                    }
+                }
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("无法写入使用汇总: " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 读取汇总文件，文件不存在或格式不符时返回空汇总
+     */
+    public static UsageRollups readFrom(File file, TimeZone timeZone) {
+        UsageRollups rollups = new UsageRollups(timeZone);
+        if (!file.exists()) {
+            return rollups;
+        }
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != FILE_VERSION) {
+                return rollups;
+            }
+            rollups.foldedUntil = input.readLong();
+            int openCount = input.readInt();
+            for (int i = 0; i < openCount; i++) {
+                rollups.openSessions.put(input.readUTF(), input.readLong());
+            }
+            int dayCount = input.readInt();
+            for (int i = 0; i < dayCount; i++) {
+                String date = input.readUTF();
+                int appCount = input.readInt();
+                for (int j = 0; j < appCount; j++) {
+                    AppDay appDay = rollups.appDay(date, input.readUTF());
+                    appDay.launchCount = input.readInt();
+                    appDay.lastUsed = input.readLong();
+                    for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+                        appDay.hourDurations[hour] = input.readLong();
+                        appDay.hourCounts[hour] = input.readInt();
+                        appDay.totalDuration += appDay.hourDurations[hour];
+                    }
+                }
+            }
+        } catch (IOException e) {
+            return new UsageRollups(timeZone);
+        }
+        return rollups;
+    }
+}
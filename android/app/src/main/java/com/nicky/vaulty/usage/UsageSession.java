@@ -0,0 +1,34 @@
+package com.nicky.vaulty.usage;
+
+/**
+ * 应用前台使用会话
+ */
+public final class UsageSession {
+    public final String packageName;
+    public final long startTime;
+    public final long endTime;
+    // 会话在查询范围开始之前就已经开始，startTime 被截断为范围起点
+    public final boolean clippedStart;
+    // 会话在查询范围结束时仍未结束，endTime 被截断为范围终点
+    public final boolean clippedEnd;
+
+    public UsageSession(String packageName, long startTime, long endTime,
+                        boolean clippedStart, boolean clippedEnd) {
+        this.packageName = packageName;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.clippedStart = clippedStart;
+        this.clippedEnd = clippedEnd;
+    }
+
+    public long getDuration() {
+        return endTime - startTime;
+    }
+
+    @Override
+    public String toString() {
+        return "UsageSession{" + packageName + ", " + startTime + " - " + endTime
+                + (clippedStart ? ", clippedStart" : "")
+                + (clippedEnd ? ", clippedEnd" : "") + "}";
+    }
+}
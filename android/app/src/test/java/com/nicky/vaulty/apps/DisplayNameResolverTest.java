@@ -0,0 +1,82 @@
+package com.nicky.vaulty.apps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class DisplayNameResolverTest {
+
+    private static DisplayNameResolver createResolver() {
+        Map<String, String> mapping = new HashMap<>();
+        mapping.put("com.tencent.mm", "微信");
+        mapping.put("com.tencent.mobileqq", "QQ");
+        mapping.put("youtube", "YouTube");
+        mapping.put("com.google.android.youtube", "油管");
+        return new DisplayNameResolver(mapping);
+    }
+
+    @Test
+    public void matchesExactThenLongestContainedKey() {
+        DisplayNameResolver resolver = createResolver();
+        assertEquals("微信", resolver.lookup("com.tencent.mm"));
+        assertEquals("微信", resolver.lookup("com.tencent.mm.plugin"));
+        assertEquals("油管", resolver.lookup("com.google.android.youtube.tv"));
+        assertEquals("YouTube", resolver.lookup("app.youtube.music"));
+        assertNull(resolver.lookup("com.example.notes"));
+    }
+
+    @Test
+    public void formatsUnknownPackages() {
+        DisplayNameResolver resolver = createResolver();
+        assertEquals("Example Notes", resolver.displayNameOf("com.example.notes"));
+        assertEquals("Settings", resolver.displayNameOf("com.android.settings"));
+        assertEquals("com.", resolver.displayNameOf("com."));
+    }
+
+    @Test
+    public void prefersNonAsciiMappedNames() {
+        DisplayNameResolver resolver = createResolver();
+        assertEquals("微信", resolver.resolve("com.tencent.mm", "WeChat"));
+        assertEquals("QQ Lite", resolver.resolve("com.tencent.mobileqq", "QQ Lite"));
+        assertEquals("Notes", resolver.resolve("com.example.notes", "Notes"));
+        assertEquals("QQ", resolver.resolve("com.tencent.mobileqq", null));
+    }
+
+    @Test
+    public void laterSourcesOverrideEarlierOnes() throws Exception {
+        InputStream bundled = new ByteArrayInputStream(
+                "# 内置\ncom.tencent.mm=微信\n".getBytes(StandardCharsets.UTF_8));
+        InputStream custom = new ByteArrayInputStream(
+                "com.tencent.mm=微信（工作）\ncom.example.notes=便签\n".getBytes(StandardCharsets.UTF_8));
+        DisplayNameResolver resolver = DisplayNameResolver.load(Arrays.asList(bundled, custom));
+        assertEquals(2, resolver.size());
+        assertEquals("微信（工作）", resolver.lookup("com.tencent.mm"));
+        assertEquals("便签", resolver.lookup("com.example.notes"));
+    }
+
+    @Test
+    public void labelMemoInvalidatesOnUpdateAndLocale() throws Exception {
+        LabelMemo memo = new LabelMemo();
+        memo.put("com.a", 1, "zh-CN", "甲");
+        assertEquals("甲", memo.get("com.a", 1, "zh-CN"));
+        assertNull(memo.get("com.a", 2, "zh-CN"));
+        assertNull(memo.get("com.a", 1, "en-US"));
+
+        File file = new File(Files.createTempDirectory("labels").toFile(), "labels.memo");
+        memo.writeTo(file);
+        LabelMemo loaded = LabelMemo.readFrom(file);
+        assertEquals("甲", loaded.get("com.a", 1, "zh-CN"));
+
+        loaded.removeAll(Arrays.asList("com.a"));
+        assertEquals(0, loaded.size());
+    }
+}
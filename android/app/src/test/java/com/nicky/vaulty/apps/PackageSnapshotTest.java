@@ -0,0 +1,55 @@
+package com.nicky.vaulty.apps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.junit.Test;
+
+public class PackageSnapshotTest {
+
+    @Test
+    public void diffsAddedUpdatedAndRemoved() {
+        PackageSnapshot previous = new PackageSnapshot();
+        previous.put("com.a", 1);
+        previous.put("com.b", 1);
+        previous.put("com.c", 1);
+
+        PackageSnapshot current = new PackageSnapshot();
+        current.put("com.a", 1);
+        current.put("com.b", 2);
+        current.put("com.d", 1);
+
+        PackageSnapshot.Delta delta = previous.diff(current);
+        assertEquals(1, delta.added.size());
+        assertEquals("com.d", delta.added.get(0));
+        assertEquals("com.b", delta.updated.get(0));
+        assertEquals("com.c", delta.removed.get(0));
+    }
+
+    @Test
+    public void hashIsStableAcrossRoundTrip() throws Exception {
+        PackageSnapshot snapshot = new PackageSnapshot();
+        snapshot.put("com.a", 1);
+        snapshot.put("com.b", 2);
+
+        File file = new File(Files.createTempDirectory("snapshot").toFile(), "packages.bin");
+        snapshot.writeTo(file);
+        PackageSnapshot loaded = PackageSnapshot.readFrom(file);
+
+        assertEquals(snapshot.hash(), loaded.hash());
+        snapshot.put("com.b", 3);
+        assertFalse(snapshot.hash().equals(loaded.hash()));
+    }
+
+    @Test
+    public void parsesDeltaToken() {
+        DeltaToken token = DeltaToken.parse(new DeltaToken(3, 42, "abc").toString());
+        assertEquals(3, token.bootCount);
+        assertEquals(42, token.sequenceNumber);
+        assertEquals("abc", token.snapshotHash);
+        assertNull(DeltaToken.parse("garbage"));
+    }
+}
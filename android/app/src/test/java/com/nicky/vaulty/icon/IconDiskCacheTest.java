@@ -0,0 +1,78 @@
+package com.nicky.vaulty.icon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class IconDiskCacheTest {
+
+    @Test
+    public void encodesOnlyWhenVersionChanges() throws Exception {
+        File dir = Files.createTempDirectory("icons").toFile();
+        IconDiskCache cache = new IconDiskCache(dir, 1024, ".png");
+        int[] encodes = { 0 };
+        IconDiskCache.IconSource source = () -> {
+            encodes[0]++;
+            return new byte[10];
+        };
+
+        File first = cache.getOrCreate("com.a", 1, source);
+        File second = cache.getOrCreate("com.a", 1, source);
+        assertEquals(first, second);
+        assertEquals(1, encodes[0]);
+
+        File updated = cache.getOrCreate("com.a", 2, source);
+        assertEquals(2, encodes[0]);
+        assertFalse(first.exists());
+        assertTrue(updated.exists());
+        assertEquals(10, cache.getTotalBytes());
+
+        // 重新加载目录后仍然命中
+        IconDiskCache reloaded = new IconDiskCache(dir, 1024, ".png");
+        assertNotNull(reloaded.get("com.a", 2));
+        assertNull(reloaded.get("com.a", 1));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        File dir = Files.createTempDirectory("icons").toFile();
+        IconDiskCache cache = new IconDiskCache(dir, 25, ".png");
+        cache.put("com.a", 1, new byte[10]);
+        cache.put("com.b", 1, new byte[10]);
+        cache.put("com.c", 1, new byte[10]);
+        // 访问 a，使 b 成为最久未使用
+        cache.get("com.a", 1);
+
+        assertEquals(1, cache.trimToSize());
+        assertNotNull(cache.get("com.a", 1));
+        assertNull(cache.get("com.b", 1));
+        assertNotNull(cache.get("com.c", 1));
+        assertEquals(20, cache.getTotalBytes());
+    }
+
+    @Test
+    public void sharesBudgetAcrossCachesEvictingOldestFirst() throws Exception {
+        IconDiskCache unused = new IconDiskCache(Files.createTempDirectory("icons").toFile(), 1024, ".png");
+        IconDiskCache active = new IconDiskCache(Files.createTempDirectory("icons").toFile(), 1024, ".webp");
+        long now = System.currentTimeMillis();
+        // 不再使用的缓存中的图标最久未访问
+        unused.put("com.a", 1, new byte[10]).setLastModified(now - 3000);
+        unused.put("com.b", 1, new byte[10]).setLastModified(now - 2000);
+        active.put("com.a", 1, new byte[10]).setLastModified(now - 1000);
+        active.put("com.b", 1, new byte[10]).setLastModified(now);
+
+        assertEquals(0, IconDiskCache.trimToSize(Arrays.asList(unused, active), 40));
+        assertEquals(3, IconDiskCache.trimToSize(Arrays.asList(unused, active), 15));
+        assertEquals(0, unused.size());
+        assertNull(active.get("com.a", 1));
+        assertNotNull(active.get("com.b", 1));
+        assertEquals(10, active.getTotalBytes());
+    }
+}
@@ -0,0 +1,97 @@
+package com.nicky.vaulty.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class EventJournalTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long BASE = 20000 * DAY;
+
+    private static List<Long> readTimestamps(EventJournal journal, long start, long end) throws Exception {
+        List<Long> timestamps = new ArrayList<>();
+        journal.read(start, end, (timestamp, packageName, className, eventType) -> {
+            timestamps.add(timestamp);
+            return true;
+        });
+        return timestamps;
+    }
+
+    @Test
+    public void readsRangesAcrossDailySegments() throws Exception {
+        File dir = Files.createTempDirectory("journal").toFile();
+        EventJournal journal = new EventJournal(dir);
+        // 跨两天写入，数量超过索引间隔
+        for (int i = 0; i < 1000; i++) {
+            journal.append(BASE + DAY - 500 + i, "com.a", i % 2 == 0 ? "Main" : null, 1);
+        }
+        journal.commit(BASE, BASE + 2 * DAY);
+        assertEquals(2, journal.getSegmentCount());
+
+        List<Long> timestamps = readTimestamps(journal, BASE + DAY - 10, BASE + DAY + 10);
+        assertEquals(20, timestamps.size());
+        assertEquals(BASE + DAY - 10, (long) timestamps.get(0));
+
+        final String[] seen = new String[2];
+        journal.read(BASE + DAY - 500, BASE + DAY, (timestamp, packageName, className, eventType) -> {
+            seen[0] = packageName;
+            seen[1] = className;
+            return false;
+        });
+        assertEquals("com.a", seen[0]);
+        assertEquals("Main", seen[1]);
+    }
+
+    @Test
+    public void skipsAlreadyCoveredEventsAfterReopen() throws Exception {
+        File dir = Files.createTempDirectory("journal").toFile();
+        EventJournal journal = new EventJournal(dir);
+        journal.append(BASE + 10, "com.a", null, 1);
+        journal.append(BASE + 20, "com.a", null, 2);
+        journal.commit(BASE, BASE + 100);
+        journal.close();
+
+        EventJournal reopened = new EventJournal(dir);
+        assertEquals(BASE + 100, reopened.getCoveredUntil());
+        assertEquals(BASE, reopened.getCoveredFrom());
+        assertFalse(reopened.append(BASE + 20, "com.a", null, 2));
+        reopened.append(BASE + 150, "com.b", null, 1);
+        reopened.commit(BASE + 100, BASE + 200);
+        assertEquals(3, readTimestamps(reopened, BASE, BASE + DAY).size());
+        assertEquals(BASE, reopened.getCoveredFrom());
+    }
+
+    @Test
+    public void recoversFromTornWriteAndCompacts() throws Exception {
+        File dir = Files.createTempDirectory("journal").toFile();
+        EventJournal journal = new EventJournal(dir);
+        journal.append(BASE + 10, "com.a", null, 1);
+        journal.append(BASE + DAY + 10, "com.a", null, 1);
+        journal.append(BASE + DAY + 20, "com.b", null, 1);
+        journal.close();
+
+        // 模拟最后一条记录只写了一半且未提交
+        File[] segments = dir.listFiles((d, name) -> name.endsWith(".seg"));
+        File last = segments[0].getName().compareTo(segments[1].getName()) > 0 ? segments[0] : segments[1];
+        try (RandomAccessFile raf = new RandomAccessFile(last, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        EventJournal reopened = new EventJournal(dir);
+        assertEquals(BASE + DAY + 11, reopened.getCoveredUntil());
+        // 没有提交过，覆盖起点取第一条记录
+        assertEquals(BASE + 10, reopened.getCoveredFrom());
+        assertEquals(2, readTimestamps(reopened, BASE, BASE + 2 * DAY).size());
+
+        assertEquals(1, reopened.compact(BASE + DAY + 5));
+        List<Long> remaining = readTimestamps(reopened, BASE, BASE + 2 * DAY);
+        assertEquals(1, remaining.size());
+        assertEquals(BASE + DAY, reopened.getCoveredFrom());
+    }
+}
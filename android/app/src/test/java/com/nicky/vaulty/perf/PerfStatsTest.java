@@ -0,0 +1,64 @@
+package com.nicky.vaulty.perf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class PerfStatsTest {
+    private static final long MILLI = 1_000_000L;
+
+    @Test
+    public void percentilesUseBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(3 * MILLI);
+        }
+        histogram.record(500 * MILLI);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(500 * MILLI, histogram.getMaxNanos());
+        // 3ms 落在 [2048, 4096) 微秒的桶中
+        assertEquals(4096 * 1000L, histogram.percentileNanos(0.5));
+        assertEquals(4096 * 1000L, histogram.percentileNanos(0.99));
+        // 最高分位不超过实际最大值
+        assertEquals(500 * MILLI, histogram.percentileNanos(1.0));
+        assertEquals(0, new LatencyHistogram().percentileNanos(0.5));
+    }
+
+    @Test
+    public void phasesRecordAndTraceSections() {
+        final List<String> sections = new ArrayList<>();
+        PerfStats stats = new PerfStats(new PerfStats.Tracer() {
+            @Override
+            public void beginSection(String name) {
+                sections.add("+" + name);
+            }
+
+            @Override
+            public void endSection() {
+                sections.add("-");
+            }
+        });
+
+        try (PerfStats.Phase outer = stats.phase("outer")) {
+            try (PerfStats.Phase inner = stats.phase("inner")) {
+                stats.increment("items", 3);
+            }
+            stats.increment("items", 2);
+        }
+
+        assertEquals(Arrays.asList("+outer", "+inner", "-", "-"), sections);
+        assertEquals(Long.valueOf(5), stats.getCounters().get("items"));
+        assertEquals(1, stats.getHistograms().get("outer").getCount());
+        assertTrue(stats.getHistograms().get("outer").getTotalNanos()
+                >= stats.getHistograms().get("inner").getTotalNanos());
+
+        stats.reset();
+        assertTrue(stats.getCounters().isEmpty());
+        assertTrue(stats.getHistograms().isEmpty());
+    }
+}
@@ -0,0 +1,234 @@
+package com.nicky.vaulty.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestSchedulerTest {
+    private final RequestScheduler<String> scheduler = new RequestScheduler<>(1, "test");
+
+    /**
+     * 记录唯一一次结果
+     */
+    private static class Outcome implements RequestScheduler.Responder<String> {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        volatile String result;
+        volatile String error;
+        volatile String code;
+
+        @Override
+        public void resolve(String result) {
+            this.result = result;
+            calls.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void reject(String message, String code) {
+            this.error = message;
+            this.code = code;
+            calls.incrementAndGet();
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * 占住唯一的工作线程，直到 release
+     */
+    private CountDownLatch blockWorker() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(null, null, RequestScheduler.Priority.HIGH, (token, responder) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            responder.resolve("blocker");
+        }, new Outcome());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void runsQueuedRequestsByPriorityThenSubmitOrder() throws Exception {
+        CountDownLatch release = blockWorker();
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        Outcome last = new Outcome();
+        scheduler.submit("low", null, RequestScheduler.Priority.LOW, (token, responder) -> {
+            order.add("low");
+            responder.resolve("low");
+        }, last);
+        String[] names = {"normal1", "high", "normal2"};
+        RequestScheduler.Priority[] priorities = {RequestScheduler.Priority.NORMAL,
+                RequestScheduler.Priority.HIGH, RequestScheduler.Priority.NORMAL};
+        for (int i = 0; i < names.length; i++) {
+            final String name = names[i];
+            scheduler.submit(name, null, priorities[i], (token, responder) -> {
+                order.add(name);
+                responder.resolve(name);
+            }, new Outcome());
+        }
+        assertEquals(4, scheduler.getQueuedCount());
+
+        release.countDown();
+        last.await();
+        assertEquals(Arrays.asList("high", "normal1", "normal2", "low"), order);
+    }
+
+    @Test
+    public void deduplicatesIdenticalInFlightRequests() throws Exception {
+        CountDownLatch release = blockWorker();
+        final AtomicInteger runs = new AtomicInteger();
+        RequestScheduler.Task<String> task = (token, responder) -> responder.resolve("r" + runs.incrementAndGet());
+        Outcome first = new Outcome();
+        Outcome second = new Outcome();
+        assertFalse(scheduler.submit("a", "query:1", RequestScheduler.Priority.NORMAL, task, first));
+        assertTrue(scheduler.submit("b", "query:1", RequestScheduler.Priority.NORMAL, task, second));
+        assertEquals(1, scheduler.getQueuedCount());
+
+        release.countDown();
+        first.await();
+        second.await();
+        assertEquals(1, runs.get());
+        assertEquals("r1", first.result);
+        assertEquals("r1", second.result);
+
+        // 已结束的请求不再合并
+        Outcome third = new Outcome();
+        assertFalse(scheduler.submit("c", "query:1", RequestScheduler.Priority.NORMAL, task, third));
+        third.await();
+        assertEquals("r2", third.result);
+    }
+
+    @Test
+    public void cancelledQueuedRequestNeverRuns() throws Exception {
+        CountDownLatch release = blockWorker();
+        final AtomicInteger runs = new AtomicInteger();
+        Outcome outcome = new Outcome();
+        scheduler.submit("a", "key", RequestScheduler.Priority.NORMAL, (token, responder) -> {
+            runs.incrementAndGet();
+            responder.resolve("ran");
+        }, outcome);
+
+        assertTrue(scheduler.cancel("a"));
+        outcome.await();
+        assertEquals(RequestScheduler.CODE_CANCELLED, outcome.code);
+        assertEquals(0, scheduler.getQueuedCount());
+        assertFalse(scheduler.cancel("a"));
+
+        release.countDown();
+        Outcome after = new Outcome();
+        scheduler.submit("b", null, RequestScheduler.Priority.LOW, (token, responder) -> responder.resolve("b"), after);
+        after.await();
+        assertEquals(0, runs.get());
+        assertEquals(1, outcome.calls.get());
+    }
+
+    @Test
+    public void cancellingRunningRequestStopsScanThroughToken() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger visited = new AtomicInteger();
+        Outcome outcome = new Outcome();
+        scheduler.submit("scan", null, RequestScheduler.Priority.NORMAL, (token, responder) -> {
+            started.countDown();
+            // 模拟逐个事件回调的扫描循环
+            long deadline = System.currentTimeMillis() + 5000;
+            while (System.currentTimeMillis() < deadline
+                    && token.wrap((timestamp, packageName, className, eventType) -> true).visit(0, "a", null, 1)) {
+                visited.incrementAndGet();
+            }
+            responder.resolve(token.isCancelled() ? "stopped" : "finished");
+        }, outcome);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(scheduler.cancel("scan"));
+        outcome.await();
+        assertEquals(RequestScheduler.CODE_CANCELLED, outcome.code);
+
+        // 扫描停止后工作线程可以继续执行后面的请求
+        Outcome next = new Outcome();
+        scheduler.submit("next", null, RequestScheduler.Priority.NORMAL, (token, responder) -> responder.resolve("ok"),
+                next);
+        next.await();
+        assertEquals("ok", next.result);
+        assertEquals(1, outcome.calls.get());
+    }
+
+    @Test
+    public void sharedRequestKeepsRunningUntilAllCallersCancel() throws Exception {
+        CountDownLatch release = blockWorker();
+        final AtomicInteger runs = new AtomicInteger();
+        RequestScheduler.Task<String> task = (token, responder) -> {
+            runs.incrementAndGet();
+            responder.resolve(token.isCancelled() ? "cancelled" : "done");
+        };
+        Outcome first = new Outcome();
+        Outcome second = new Outcome();
+        scheduler.submit("a", "same", RequestScheduler.Priority.LOW, task, first);
+        scheduler.submit("b", "same", RequestScheduler.Priority.LOW, task, second);
+
+        assertTrue(scheduler.cancel("a"));
+        first.await();
+        assertEquals(RequestScheduler.CODE_CANCELLED, first.code);
+
+        release.countDown();
+        second.await();
+        assertEquals("done", second.result);
+        assertNull(second.error);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void rejectsWhenTaskThrowsOrReturnsNothing() throws Exception {
+        Outcome thrown = new Outcome();
+        scheduler.submit(null, null, RequestScheduler.Priority.NORMAL, (token, responder) -> {
+            throw new IllegalStateException("boom");
+        }, thrown);
+        Outcome silent = new Outcome();
+        scheduler.submit(null, null, RequestScheduler.Priority.NORMAL, (token, responder) -> {
+        }, silent);
+
+        thrown.await();
+        silent.await();
+        assertEquals("boom", thrown.error);
+        assertNull(thrown.code);
+        assertEquals(1, thrown.calls.get());
+        assertTrue(silent.error != null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateRequestId() throws Exception {
+        CountDownLatch release = blockWorker();
+        try {
+            scheduler.submit("a", null, RequestScheduler.Priority.NORMAL, (token, responder) -> responder.resolve("1"),
+                    new Outcome());
+            scheduler.submit("a", null, RequestScheduler.Priority.NORMAL, (token, responder) -> responder.resolve("2"),
+                    new Outcome());
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.nicky.vaulty.usage;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class CompactEventEncoderTest {
+
+    @Test
+    public void encodesRowsWithDictionaryAndDeltas() {
+        CompactEventEncoder encoder = new CompactEventEncoder(16);
+        encoder.add("com.a", "com.a.Main", 1_700_000_000_000L, EventTypes.ACTIVITY_RESUMED);
+        encoder.add("com.a", null, 1_700_000_000_100L, EventTypes.ACTIVITY_PAUSED);
+        encoder.add("com.b", "com.b.Main", 1_700_000_000_100L, EventTypes.ACTIVITY_RESUMED);
+
+        assertEquals(3, encoder.getCount());
+        assertEquals(1_700_000_000_000L, encoder.getBaseTimestamp());
+        assertEquals(2, encoder.getPackages().size());
+        assertEquals(2, encoder.getClasses().size());
+
+        byte[] data = encoder.toByteArray();
+        // 行 1: type=1, pkg=0, class=1, delta=0
+        // 行 2: type=2, pkg=0, class=0, delta=100 -> zigzag 200 -> 0xC8 0x01
+        // 行 3: type=1, pkg=1, class=2, delta=0
+        byte[] expected = { 1, 0, 1, 0, 2, 0, 0, (byte) 0xC8, 0x01, 1, 1, 2, 0 };
+        assertEquals(expected.length, data.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("byte " + i, expected[i], data[i]);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.nicky.vaulty.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class EventFilterTest {
+
+    @Test
+    public void defaultsToForegroundEventsOfAllApps() {
+        EventFilter filter = EventFilter.of(null, null, null, null);
+        assertTrue(filter.accepts("com.a", EventTypes.ACTIVITY_RESUMED));
+        assertTrue(filter.accepts("com.b", EventTypes.ACTIVITY_PAUSED));
+        assertFalse(filter.accepts("android", EventTypes.SCREEN_INTERACTIVE));
+        assertFalse(filter.accepts("com.a", 23));
+        assertEquals(EventFilter.ALL_FIELDS, filter.getFields());
+    }
+
+    @Test
+    public void appliesPackageSetsAndTypeMask() {
+        EventFilter filter = EventFilter.of(Arrays.asList("com.a", "android"), Collections.singletonList("android"),
+                Arrays.asList("ACTIVITY_RESUMED", "SCREEN_INTERACTIVE", "FOREGROUND_SERVICE_STOP"), null);
+        assertTrue(filter.accepts("com.a", EventTypes.ACTIVITY_RESUMED));
+        assertTrue(filter.accepts("com.a", EventTypes.FOREGROUND_SERVICE_STOP));
+        assertFalse(filter.accepts("com.a", EventTypes.ACTIVITY_PAUSED));
+        // 排除优先于包含
+        assertFalse(filter.accepts("android", EventTypes.SCREEN_INTERACTIVE));
+        assertFalse(filter.accepts("com.b", EventTypes.ACTIVITY_RESUMED));
+        assertEquals(EventFilter.maskOf(1) | EventFilter.maskOf(15) | EventFilter.maskOf(20),
+                filter.getEventTypeMask());
+    }
+
+    @Test
+    public void parsesFieldProjectionAndTypeNames() {
+        EventFilter filter = EventFilter.of(null, null, null, Arrays.asList("packageName", "timestamp"));
+        assertTrue(filter.includes(EventFilter.FIELD_PACKAGE_NAME));
+        assertTrue(filter.includes(EventFilter.FIELD_TIMESTAMP));
+        assertFalse(filter.includes(EventFilter.FIELD_CLASS_NAME));
+        assertFalse(filter.includes(EventFilter.FIELD_EVENT_TYPE));
+        assertEquals(EventTypes.KEYGUARD_HIDDEN, EventTypes.valueOf("KEYGUARD_HIDDEN"));
+        assertEquals(-1, EventTypes.valueOf(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownNames() {
+        EventFilter.of(null, null, Collections.singletonList("CONFIGURATION_CHANGE"), null);
+    }
+}
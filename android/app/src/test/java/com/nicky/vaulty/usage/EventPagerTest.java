@@ -0,0 +1,59 @@
+package com.nicky.vaulty.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class EventPagerTest {
+
+    private static final long[] TIMESTAMPS = { 10, 20, 20, 20, 30, 40, 40 };
+
+    @Test
+    public void pagesThroughEventsSharingTimestamps() {
+        List<Integer> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            EventPager pager = new EventPager(cursor, 2);
+            cursor = null;
+            for (int i = 0; i < TIMESTAMPS.length; i++) {
+                long timestamp = TIMESTAMPS[i];
+                if (timestamp < pager.scanStart(0) || pager.shouldSkip(timestamp)) {
+                    continue;
+                }
+                if (pager.isFull()) {
+                    cursor = pager.nextCursor();
+                    break;
+                }
+                pager.onEmitted(timestamp);
+                seen.add(i);
+            }
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(4, pages);
+        assertEquals(TIMESTAMPS.length, seen.size());
+        for (int i = 0; i < TIMESTAMPS.length; i++) {
+            assertEquals(i, (int) seen.get(i));
+        }
+    }
+
+    @Test
+    public void encodesTimestampAndOffset() {
+        EventPager pager = new EventPager("20:1", 5);
+        assertEquals(20, pager.scanStart(0));
+        assertTrue(pager.shouldSkip(20));
+        assertFalse(pager.shouldSkip(20));
+        pager.onEmitted(20);
+        assertEquals("20:2", pager.nextCursor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedCursor() {
+        new EventPager("abc", 5);
+    }
+}
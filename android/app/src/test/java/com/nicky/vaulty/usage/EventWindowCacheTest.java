@@ -0,0 +1,149 @@
+package com.nicky.vaulty.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.nicky.vaulty.journal.EventJournal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class EventWindowCacheTest {
+    private static final long HOUR = EventWindowCache.WINDOW_MILLIS;
+    private static final long BASE = 1_700_000_000_000L - 1_700_000_000_000L % HOUR;
+
+    /**
+     * 每 10 分钟一个事件，记录每次扫描的范围
+     */
+    private static class FakeSource implements EventWindowCache.Source {
+        final List<long[]> scans = new ArrayList<>();
+
+        @Override
+        public void scan(long startTime, long endTime, EventJournal.Visitor visitor) {
+            scans.add(new long[]{startTime, endTime});
+            long step = 10 * 60 * 1000;
+            long first = (startTime + step - 1) / step * step;
+            for (long timestamp = first; timestamp < endTime; timestamp += step) {
+                if (!visitor.visit(timestamp, "com.a", null, EventTypes.ACTIVITY_RESUMED)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static List<Long> read(EventWindowCache cache, long start, long end, long closedBefore,
+                                   FakeSource source) {
+        List<Long> timestamps = new ArrayList<>();
+        cache.read(start, end, closedBefore, source, (timestamp, packageName, className, eventType) -> {
+            timestamps.add(timestamp);
+            return true;
+        });
+        return timestamps;
+    }
+
+    @Test
+    public void repeatedReadOnlyScansOpenTail() {
+        EventWindowCache cache = new EventWindowCache(1024 * 1024);
+        FakeSource source = new FakeSource();
+        long now = BASE + 5 * HOUR + 20 * 60 * 1000;
+        long closedBefore = EventWindowCache.closedBefore(now, 0);
+
+        List<Long> first = read(cache, BASE + 30 * 60 * 1000, now, closedBefore, source);
+        // 已结束的 4.5 个小时一次加载，尾部一次扫描
+        assertEquals(2, source.scans.size());
+        assertEquals(BASE, source.scans.get(0)[0]);
+        assertEquals(BASE + 5 * HOUR, source.scans.get(0)[1]);
+        assertEquals(5, cache.getWindowCount());
+
+        source.scans.clear();
+        List<Long> second = read(cache, BASE + 30 * 60 * 1000, now, closedBefore, source);
+        assertEquals(first, second);
+        assertEquals(1, source.scans.size());
+        assertEquals(BASE + 5 * HOUR, source.scans.get(0)[0]);
+        assertEquals(27 + 2, second.size());
+        assertEquals(Long.valueOf(BASE + 30 * 60 * 1000), second.get(0));
+    }
+
+    @Test
+    public void loadsOnlyMissingWindowsAndStopsEarly() {
+        EventWindowCache cache = new EventWindowCache(1024 * 1024);
+        FakeSource source = new FakeSource();
+        long closedBefore = BASE + 10 * HOUR;
+
+        read(cache, BASE + 2 * HOUR, BASE + 3 * HOUR, closedBefore, source);
+        source.scans.clear();
+        read(cache, BASE, BASE + 4 * HOUR, closedBefore, source);
+        // 第 2 小时已缓存，前后两段各一次查询
+        assertEquals(2, source.scans.size());
+        assertEquals(1, cache.getHits());
+
+        final int[] visited = new int[1];
+        boolean completed = cache.read(BASE, BASE + 4 * HOUR, closedBefore, source, (t, p, c, e) -> ++visited[0] < 3);
+        assertFalse(completed);
+        assertEquals(3, visited[0]);
+    }
+
+    @Test
+    public void splitsLongMissingRunsIntoBoundedLoads() {
+        EventWindowCache cache = new EventWindowCache(64 * 1024 * 1024);
+        FakeSource source = new FakeSource();
+        int hours = 2 * EventWindowCache.MAX_LOAD_WINDOWS + 2;
+        long closedBefore = BASE + hours * HOUR;
+
+        List<Long> all = read(cache, BASE, closedBefore, closedBefore, source);
+        assertEquals(hours * 6, all.size());
+        assertEquals(3, source.scans.size());
+        for (long[] scan : source.scans) {
+            assertTrue(scan[1] - scan[0] <= EventWindowCache.MAX_LOAD_WINDOWS * HOUR);
+        }
+    }
+
+    @Test
+    public void countsInternedStringsTowardBudget() {
+        long maxBytes = 16 * 1024;
+        EventWindowCache cache = new EventWindowCache(maxBytes);
+        // 每个窗口的包名都不同，字符串表会随读取的窗口数增长
+        EventWindowCache.Source source = (startTime, endTime, visitor) -> {
+            for (long timestamp = startTime; timestamp < endTime; timestamp += HOUR) {
+                String packageName = "com.example.app" + (timestamp / HOUR);
+                if (!visitor.visit(timestamp, packageName, packageName + ".MainActivity",
+                        EventTypes.ACTIVITY_RESUMED)) {
+                    return;
+                }
+            }
+        };
+
+        int hours = 2000;
+        for (int hour = 0; hour < hours; hour++) {
+            cache.read(BASE + hour * HOUR, BASE + (hour + 1) * HOUR, BASE + hours * HOUR, source,
+                    (t, p, c, e) -> true);
+            assertTrue(cache.getSizeBytes() <= maxBytes);
+        }
+        // 只被已淘汰窗口引用的字符串被清理，缓存仍能保留多个窗口
+        assertTrue(cache.getWindowCount() >= 10);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWindowsOverBudget() {
+        // 每个窗口 6 个事件，预算只够两个窗口和一个包名
+        long blockBytes = 96 + 6 * 20;
+        long budget = 2 * blockBytes + EventWindowCache.stringBytes("com.a");
+        EventWindowCache cache = new EventWindowCache(budget);
+        FakeSource source = new FakeSource();
+        long closedBefore = BASE + 10 * HOUR;
+
+        List<Long> all = read(cache, BASE, BASE + 4 * HOUR, closedBefore, source);
+        assertEquals(24, all.size());
+        assertEquals(2, cache.getWindowCount());
+        assertTrue(cache.getSizeBytes() <= budget);
+
+        // 最后加载的两个窗口仍在缓存中
+        source.scans.clear();
+        read(cache, BASE + 2 * HOUR, BASE + 4 * HOUR, closedBefore, source);
+        assertEquals(0, source.scans.size());
+
+        cache.clear();
+        assertEquals(0, cache.getSizeBytes());
+    }
+}
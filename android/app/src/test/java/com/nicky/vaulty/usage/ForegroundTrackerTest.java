@@ -0,0 +1,80 @@
+package com.nicky.vaulty.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class ForegroundTrackerTest {
+
+    private static class RecordingListener implements ForegroundTracker.Listener {
+        final List<String> changes = new ArrayList<>();
+        final List<Map<String, Long>> durations = new ArrayList<>();
+
+        @Override
+        public void onForegroundChanged(String packageName, long since, String previousPackageName) {
+            changes.add(previousPackageName + "->" + packageName + "@" + since);
+        }
+
+        @Override
+        public void onDurations(long timestamp, Map<String, Long> durations) {
+            this.durations.add(durations);
+        }
+    }
+
+    @Test
+    public void primesFromHistoryAndAccruesOnlyNewTime() {
+        ForegroundTracker tracker = new ForegroundTracker(2000);
+        tracker.accept("com.a", EventTypes.ACTIVITY_RESUMED, 1_000);
+        tracker.startAccruing(10_000);
+        assertEquals("com.a", tracker.getForegroundPackage());
+        assertEquals(1_000, tracker.getForegroundSince());
+
+        RecordingListener listener = new RecordingListener();
+        tracker.flush(15_000, listener);
+        assertEquals(0, listener.changes.size());
+        assertEquals(Long.valueOf(5_000), listener.durations.get(0).get("com.a"));
+
+        // 没有新时长时不输出
+        tracker.flush(15_000, listener);
+        assertEquals(1, listener.durations.size());
+    }
+
+    @Test
+    public void debouncesQuickSwitchesAndActivityChanges() {
+        ForegroundTracker tracker = new ForegroundTracker(2000);
+        tracker.accept("com.a", EventTypes.ACTIVITY_RESUMED, 0);
+        tracker.startAccruing(0);
+        RecordingListener listener = new RecordingListener();
+
+        // 同一应用内切换 Activity
+        tracker.accept("com.a", EventTypes.ACTIVITY_PAUSED, 1_000);
+        tracker.accept("com.a", EventTypes.ACTIVITY_RESUMED, 1_100);
+        // 切到 com.b 又很快切回
+        tracker.accept("com.a", EventTypes.ACTIVITY_PAUSED, 3_000);
+        tracker.accept("com.b", EventTypes.ACTIVITY_RESUMED, 3_000);
+        tracker.accept("com.b", EventTypes.ACTIVITY_PAUSED, 3_500);
+        tracker.accept("com.a", EventTypes.ACTIVITY_RESUMED, 3_500);
+        tracker.flush(5_000, listener);
+        assertEquals(0, listener.changes.size());
+        assertEquals(Long.valueOf(4_400), listener.durations.get(0).get("com.a"));
+        assertEquals(Long.valueOf(500), listener.durations.get(0).get("com.b"));
+
+        // 切到 com.c，未稳定前不通知
+        tracker.accept("com.a", EventTypes.ACTIVITY_PAUSED, 6_000);
+        tracker.accept("com.c", EventTypes.ACTIVITY_RESUMED, 6_000);
+        tracker.flush(7_000, listener);
+        assertEquals(0, listener.changes.size());
+        tracker.flush(8_000, listener);
+        assertEquals("com.a->com.c@6000", listener.changes.get(0));
+
+        // 熄屏
+        tracker.accept("android", EventTypes.SCREEN_NON_INTERACTIVE, 9_000);
+        tracker.flush(12_000, listener);
+        assertEquals("com.c->null@9000", listener.changes.get(1));
+        assertNull(tracker.getForegroundPackage());
+    }
+}
@@ -0,0 +1,92 @@
+package com.nicky.vaulty.usage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.TimeZone;
+import org.junit.Test;
+
+public class HourlyAggregatorTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @Test
+    public void splitsSessionsAcrossHourBoundaries() {
+        long dayStart = TimeRanges.dayRange("2024-03-01", UTC)[0];
+        HourlyAggregator aggregator = new HourlyAggregator(dayStart, dayStart + 24 * HOUR, UTC);
+
+        // 09:30 - 11:15
+        aggregator.add("a", dayStart + 9 * HOUR + HOUR / 2, dayStart + 11 * HOUR + HOUR / 4, true);
+        aggregator.add("b", dayStart + 10 * HOUR, dayStart + 10 * HOUR + 1000, true);
+
+        assertEquals(24, aggregator.getHourCount());
+        assertEquals(HOUR / 2, aggregator.getHourTotal(9));
+        assertEquals(HOUR + 1000, aggregator.getHourTotal(10));
+        assertEquals(HOUR / 4, aggregator.getHourTotal(11));
+
+        int a = aggregator.getPackages().indexOf("a");
+        int b = aggregator.getPackages().indexOf("b");
+        assertEquals(HOUR + HOUR / 2 + HOUR / 4, aggregator.getAppDuration(a));
+        assertEquals(1, aggregator.getAppLaunchCount(a));
+        assertEquals(HOUR, aggregator.getHourAppDuration(10, a));
+        assertEquals(1000, aggregator.getHourAppDuration(10, b));
+        assertEquals(1, aggregator.getHourAppCount(11, a));
+    }
+
+    @Test
+    public void clipsToRangeAndSkipsLaunchForClippedStart() {
+        long dayStart = TimeRanges.dayRange("2024-03-01", UTC)[0];
+        HourlyAggregator aggregator = new HourlyAggregator(dayStart, dayStart + 24 * HOUR, UTC);
+
+        aggregator.onSession(new UsageSession("a", dayStart - HOUR, dayStart + 1000, true, false));
+
+        int a = aggregator.getPackages().indexOf("a");
+        assertEquals(1000, aggregator.getAppDuration(a));
+        assertEquals(0, aggregator.getAppLaunchCount(a));
+        assertEquals(1000, aggregator.getHourTotal(0));
+    }
+
+    @Test
+    public void mergesRepeatedLocalHourOnFallBackDay() {
+        TimeZone berlin = TimeZone.getTimeZone("Europe/Berlin");
+        // 2024-10-27 03:00 CEST 回拨到 02:00 CET，本地 02 点出现两次，当天共 25 小时
+        long[] day = TimeRanges.dayRange("2024-10-27", berlin);
+        assertEquals(25 * HOUR, day[1] - day[0]);
+        HourlyAggregator aggregator = new HourlyAggregator(day[0], day[1], berlin);
+
+        // 两次出现的 02 点各使用 10 分钟
+        aggregator.add("a", day[0] + 2 * HOUR, day[0] + 2 * HOUR + 600_000, true);
+        aggregator.add("a", day[0] + 3 * HOUR, day[0] + 3 * HOUR + 600_000, true);
+
+        assertEquals(24, aggregator.getHourCount());
+        for (int hour = 0; hour < aggregator.getHourCount(); hour++) {
+            assertEquals(hour, TimeRanges.hourOf(aggregator.getHourStart(hour), berlin));
+        }
+        assertEquals(2 * HOUR, aggregator.getHourStart(3) - aggregator.getHourStart(2));
+        assertEquals(1_200_000, aggregator.getHourTotal(2));
+        assertEquals(2, aggregator.getHourAppCount(2, aggregator.getPackages().indexOf("a")));
+        assertEquals(0, aggregator.getHourTotal(3));
+    }
+
+    @Test
+    public void skipsMissingLocalHourOnSpringForwardDay() {
+        TimeZone berlin = TimeZone.getTimeZone("Europe/Berlin");
+        // 2024-03-31 02:00 CET 跳到 03:00 CEST，当天共 23 小时
+        long[] day = TimeRanges.dayRange("2024-03-31", berlin);
+        HourlyAggregator aggregator = new HourlyAggregator(day[0], day[1], berlin);
+
+        assertEquals(23, aggregator.getHourCount());
+        assertEquals(3, TimeRanges.hourOf(aggregator.getHourStart(2), berlin));
+    }
+
+    @Test
+    public void growsPerAppArrays() {
+        HourlyAggregator aggregator = new HourlyAggregator(0, 2 * HOUR, UTC);
+        for (int i = 0; i < 100; i++) {
+            aggregator.add("app" + i, i * 1000L, i * 1000L + 500, true);
+        }
+        assertEquals(100, aggregator.getPackages().size());
+        assertEquals(100 * 500L, aggregator.getHourTotal(0));
+        assertEquals(500, aggregator.getHourAppDuration(0, 99));
+    }
+}
@@ -0,0 +1,83 @@
+package com.nicky.vaulty.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Test;
+
+public class SessionBuilderTest {
+
+    private static final int R = EventTypes.ACTIVITY_RESUMED;
+    private static final int P = EventTypes.ACTIVITY_PAUSED;
+
+    @Test
+    public void pairsResumeAndPause() {
+        List<UsageSession> sessions = SessionBuilder.build(0, 1000,
+                new String[] { "a", "a", "b", "b" },
+                new int[] { R, P, R, P },
+                new long[] { 100, 200, 300, 450 });
+
+        assertEquals(2, sessions.size());
+        assertEquals("a", sessions.get(0).packageName);
+        assertEquals(100, sessions.get(0).getDuration());
+        assertEquals(150, sessions.get(1).getDuration());
+        assertFalse(sessions.get(1).clippedStart);
+        assertFalse(sessions.get(1).clippedEnd);
+    }
+
+    @Test
+    public void clipsSessionsOpenAtRangeEdges() {
+        List<UsageSession> sessions = SessionBuilder.build(1000, 2000,
+                new String[] { "a", "b" },
+                new int[] { P, R },
+                new long[] { 1200, 1800 });
+
+        assertEquals(2, sessions.size());
+        UsageSession leading = sessions.get(0);
+        assertEquals(1000, leading.startTime);
+        assertEquals(1200, leading.endTime);
+        assertTrue(leading.clippedStart);
+
+        UsageSession trailing = sessions.get(1);
+        assertEquals(1800, trailing.startTime);
+        assertEquals(2000, trailing.endTime);
+        assertTrue(trailing.clippedEnd);
+    }
+
+    @Test
+    public void clipsLeadingSessionAfterNonForegroundEvents() {
+        List<UsageSession> sessions = SessionBuilder.build(1000, 2000,
+                new String[] { "a", "a" },
+                new int[] { EventTypes.FOREGROUND_SERVICE_START, P },
+                new long[] { 1100, 1200 });
+
+        assertEquals(1, sessions.size());
+        assertEquals(1000, sessions.get(0).startTime);
+        assertEquals(1200, sessions.get(0).endTime);
+        assertTrue(sessions.get(0).clippedStart);
+    }
+
+    @Test
+    public void keepsEarliestResumeAndIgnoresStrayPause() {
+        List<UsageSession> sessions = SessionBuilder.build(0, 1000,
+                new String[] { "a", "a", "a", "a" },
+                new int[] { R, R, P, P },
+                new long[] { 100, 150, 300, 400 });
+
+        assertEquals(1, sessions.size());
+        assertEquals(100, sessions.get(0).startTime);
+        assertEquals(300, sessions.get(0).endTime);
+    }
+
+    @Test
+    public void dropsZeroLengthSessions() {
+        List<UsageSession> sessions = SessionBuilder.build(0, 1000,
+                new String[] { "a", "a" },
+                new int[] { R, P },
+                new long[] { 100, 100 });
+
+        assertEquals(0, sessions.size());
+    }
+}
@@ -0,0 +1,95 @@
+package com.nicky.vaulty.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.nicky.vaulty.journal.EventJournal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class SlicedScannerTest {
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long DAY = SlicedScanner.DAY_MILLIS;
+
+    /**
+     * 从 2 点开始每 3 小时一对 RESUMED / PAUSED，每个会话持续 2 小时，23 点开始的会话跨越天边界；
+     * 越早的分片返回越慢，检验乱序完成时仍按顺序合并
+     */
+    private static class SlowSource implements EventWindowCache.Source {
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+
+        @Override
+        public void scan(long startTime, long endTime, EventJournal.Visitor visitor) {
+            maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(Math.max(0, 40 - startTime / DAY * 10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (long start = 2 * HOUR; start < 10 * DAY; start += 3 * HOUR) {
+                if (start >= startTime && start < endTime
+                        && !visitor.visit(start, "com.a", null, EventTypes.ACTIVITY_RESUMED)) {
+                    break;
+                }
+                long end = start + 2 * HOUR;
+                if (end >= startTime && end < endTime
+                        && !visitor.visit(end, "com.a", null, EventTypes.ACTIVITY_PAUSED)) {
+                    break;
+                }
+            }
+            running.decrementAndGet();
+        }
+    }
+
+    @Test
+    public void mergesSlicesInOrderAndStitchesSessions() throws Exception {
+        SlowSource source = new SlowSource();
+        List<Long> timestamps = new ArrayList<>();
+        List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+        final List<UsageSession> sessions = new ArrayList<>();
+        SessionBuilder builder = new SessionBuilder(0, 4 * DAY, sessions::add);
+
+        boolean completed = new SlicedScanner(3).scan(0, 4 * DAY, DAY, source,
+                (timestamp, packageName, className, eventType) -> {
+                    timestamps.add(timestamp);
+                    builder.accept(packageName, eventType, timestamp);
+                    return true;
+                },
+                (completedSlices, totalSlices, sliceStart, sliceEnd, eventCount) -> {
+                    assertEquals(4, totalSlices);
+                    assertEquals((completedSlices - 1) * DAY, sliceStart);
+                    progress.add(completedSlices);
+                });
+        builder.finish();
+
+        assertTrue(completed);
+        assertEquals(Arrays.asList(1, 2, 3, 4), progress);
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertTrue(timestamps.get(i - 1) < timestamps.get(i));
+        }
+        // 跨越分片边界的会话也完整保留 2 小时，只有最后一个被范围终点截断
+        assertEquals(32, sessions.size());
+        for (UsageSession session : sessions.subList(0, 31)) {
+            assertEquals(2 * HOUR, session.getDuration());
+        }
+        assertTrue(sessions.get(31).clippedEnd);
+        assertTrue(source.maxConcurrent.get() > 1);
+    }
+
+    @Test
+    public void stopsWhenVisitorStops() throws Exception {
+        final int[] visited = new int[1];
+        boolean completed = new SlicedScanner(2).scan(0, 3 * DAY, DAY, new SlowSource(),
+                (timestamp, packageName, className, eventType) -> ++visited[0] < 20,
+                (completedSlices, totalSlices, sliceStart, sliceEnd, eventCount) -> {
+                });
+        assertFalse(completed);
+        assertEquals(20, visited[0]);
+    }
+}
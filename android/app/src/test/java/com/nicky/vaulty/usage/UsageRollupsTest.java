@@ -0,0 +1,60 @@
+package com.nicky.vaulty.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TimeZone;
+import org.junit.Test;
+
+public class UsageRollupsTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long HOUR = 60L * 60 * 1000;
+
+    @Test
+    public void carriesOpenSessionsAcrossBatches() {
+        long dayStart = TimeRanges.dayRange("2024-03-01", UTC)[0];
+        UsageRollups rollups = new UsageRollups(UTC);
+
+        // 第一批只有 RESUMED，会话未结束时不计入
+        rollups.accept("com.a", EventTypes.ACTIVITY_RESUMED, dayStart + 9 * HOUR + 30 * 60 * 1000);
+        assertNull(rollups.getDay("2024-03-01"));
+
+        // 第二批的 PAUSED 结束会话，跨两个小时
+        rollups.accept("com.a", EventTypes.ACTIVITY_PAUSED, dayStart + 10 * HOUR + 15 * 60 * 1000);
+        UsageRollups.AppDay appDay = rollups.getDay("2024-03-01").get("com.a");
+        assertEquals(30 * 60 * 1000, appDay.getHourDuration(9));
+        assertEquals(15 * 60 * 1000, appDay.getHourDuration(10));
+        assertEquals(1, appDay.getHourCount(10));
+        assertEquals(1, appDay.getLaunchCount());
+        assertEquals(45 * 60 * 1000, appDay.getTotalDuration());
+    }
+
+    @Test
+    public void splitsAcrossMidnightAndRoundTrips() throws Exception {
+        long dayStart = TimeRanges.dayRange("2024-03-01", UTC)[0];
+        UsageRollups rollups = new UsageRollups(UTC);
+        rollups.addSession("com.a", dayStart + 24 * HOUR - 10_000, dayStart + 24 * HOUR + 5_000);
+        rollups.accept("com.b", EventTypes.ACTIVITY_RESUMED, dayStart + 25 * HOUR);
+        rollups.setFoldedUntil(dayStart + 26 * HOUR);
+
+        File file = new File(Files.createTempDirectory("rollups").toFile(), "rollups.bin");
+        rollups.writeTo(file);
+        UsageRollups loaded = UsageRollups.readFrom(file, UTC);
+
+        assertEquals(dayStart + 26 * HOUR, loaded.getFoldedUntil());
+        assertEquals(2, loaded.getDates("2024-03-01", "2024-03-02").size());
+        assertEquals(10_000, loaded.getDay("2024-03-01").get("com.a").getHourDuration(23));
+        Map<String, UsageRollups.AppDay> nextDay = loaded.getDay("2024-03-02");
+        assertEquals(5_000, nextDay.get("com.a").getTotalDuration());
+        assertEquals(0, nextDay.get("com.a").getLaunchCount());
+
+        loaded.accept("com.b", EventTypes.ACTIVITY_PAUSED, dayStart + 25 * HOUR + 1_000);
+        assertEquals(1_000, loaded.getDay("2024-03-02").get("com.b").getTotalDuration());
+
+        loaded.prune("2024-03-02");
+        assertNull(loaded.getDay("2024-03-01"));
+    }
+}
@@ -0,0 +1,21 @@
+package com.nicky.vaulty.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 处理的事件数，JMH 把它报告为每秒处理的事件数（events/s）
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class EventCounter {
+    public long events;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        events = 0;
+    }
+}
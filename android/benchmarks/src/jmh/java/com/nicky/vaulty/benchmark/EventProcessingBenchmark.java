@@ -0,0 +1,113 @@
+package com.nicky.vaulty.benchmark;
+
+import com.nicky.vaulty.usage.CompactEventEncoder;
+import com.nicky.vaulty.usage.EventJson;
+import com.nicky.vaulty.usage.EventTypes;
+import com.nicky.vaulty.usage.HourlyAggregator;
+import com.nicky.vaulty.usage.SessionBuilder;
+import com.nicky.vaulty.usage.UsageRollups;
+
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件处理核心的吞吐量基准
+ * 每次调用处理 days 天的完整合成事件流
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EventProcessingBenchmark {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @Param({ "1", "30", "90" })
+    public int days;
+
+    private SyntheticUsage usage;
+
+    @Setup
+    public void setUp() {
+        usage = SyntheticUsage.generate(days, 42);
+        System.out.println("\n事件数: " + usage.size);
+    }
+
+    @Benchmark
+    public int filterForeground(EventCounter counter) {
+        int count = 0;
+        for (int i = 0; i < usage.size; i++) {
+            if (EventTypes.isForeground(usage.eventTypes[i])) {
+                count++;
+            }
+        }
+        counter.events += usage.size;
+        return count;
+    }
+
+    @Benchmark
+    public int buildSessions(EventCounter counter) {
+        SessionBuilder builder = new SessionBuilder(usage.startTime, usage.endTime, session -> { });
+        for (int i = 0; i < usage.size; i++) {
+            builder.accept(usage.packageNames[i], usage.eventTypes[i], usage.timestamps[i]);
+        }
+        builder.finish();
+        counter.events += usage.size;
+        return builder.getSessionCount();
+    }
+
+    @Benchmark
+    public HourlyAggregator aggregateHourly(EventCounter counter) {
+        HourlyAggregator aggregator = new HourlyAggregator(usage.startTime, usage.endTime, UTC);
+        SessionBuilder builder = new SessionBuilder(usage.startTime, usage.endTime, aggregator);
+        for (int i = 0; i < usage.size; i++) {
+            builder.accept(usage.packageNames[i], usage.eventTypes[i], usage.timestamps[i]);
+        }
+        builder.finish();
+        counter.events += usage.size;
+        return aggregator;
+    }
+
+    @Benchmark
+    public UsageRollups foldRollups(EventCounter counter) {
+        UsageRollups rollups = new UsageRollups(UTC);
+        for (int i = 0; i < usage.size; i++) {
+            rollups.accept(usage.packageNames[i], usage.eventTypes[i], usage.timestamps[i]);
+        }
+        counter.events += usage.size;
+        return rollups;
+    }
+
+    @Benchmark
+    public int encodeCompact(EventCounter counter) {
+        CompactEventEncoder encoder = new CompactEventEncoder();
+        for (int i = 0; i < usage.size; i++) {
+            if (EventTypes.isForeground(usage.eventTypes[i])) {
+                encoder.add(usage.packageNames[i], usage.classNames[i], usage.timestamps[i], usage.eventTypes[i]);
+            }
+        }
+        counter.events += usage.size;
+        return encoder.getLength();
+    }
+
+    @Benchmark
+    public JSONArray buildJson(EventCounter counter) {
+        JSONArray events = new JSONArray();
+        for (int i = 0; i < usage.size; i++) {
+            if (EventTypes.isForeground(usage.eventTypes[i])) {
+                events.put(EventJson.toJson(usage.packageNames[i], usage.classNames[i],
+                        usage.timestamps[i], usage.eventTypes[i]));
+            }
+        }
+        counter.events += usage.size;
+        return events;
+    }
+}
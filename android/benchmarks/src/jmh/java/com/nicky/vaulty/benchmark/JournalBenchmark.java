@@ -0,0 +1,111 @@
+package com.nicky.vaulty.benchmark;
+
+import com.nicky.vaulty.journal.EventJournal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件日志的追加和范围读取基准
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JournalBenchmark {
+
+    @Param({ "30", "90" })
+    public int days;
+
+    private SyntheticUsage usage;
+    private File readDir;
+    private EventJournal readJournal;
+    private File appendDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        usage = SyntheticUsage.generate(days, 42);
+        readDir = Files.createTempDirectory("journal-read").toFile();
+        readJournal = new EventJournal(readDir);
+        appendAll(readJournal);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareAppend() throws IOException {
+        appendDir = Files.createTempDirectory("journal-append").toFile();
+    }
+
+    @TearDown(Level.Invocation)
+    public void cleanAppend() {
+        deleteRecursively(appendDir);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        readJournal.close();
+        deleteRecursively(readDir);
+    }
+
+    @Benchmark
+    public long append(EventCounter counter) throws IOException {
+        EventJournal journal = new EventJournal(appendDir);
+        appendAll(journal);
+        journal.close();
+        counter.events += usage.size;
+        return journal.getCoveredUntil();
+    }
+
+    @Benchmark
+    public long readAll(EventCounter counter) throws IOException {
+        final long[] sum = { 0 };
+        readJournal.read(usage.startTime, usage.endTime, (timestamp, packageName, className, eventType) -> {
+            sum[0] += timestamp;
+            return true;
+        });
+        counter.events += usage.size;
+        return sum[0];
+    }
+
+    /**
+     * 只读取最后一天，衡量稀疏索引和按天分段的定位开销
+     */
+    @Benchmark
+    public int readLastDay() throws IOException {
+        final int[] count = { 0 };
+        readJournal.read(usage.endTime - 24L * 60 * 60 * 1000, usage.endTime,
+                (timestamp, packageName, className, eventType) -> {
+                    count[0]++;
+                    return true;
+                });
+        return count[0];
+    }
+
+    private void appendAll(EventJournal journal) throws IOException {
+        for (int i = 0; i < usage.size; i++) {
+            journal.append(usage.timestamps[i], usage.packageNames[i], usage.classNames[i], usage.eventTypes[i]);
+        }
+        journal.commit(usage.endTime);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
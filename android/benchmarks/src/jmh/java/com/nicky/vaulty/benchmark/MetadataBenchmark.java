@@ -0,0 +1,74 @@
+package com.nicky.vaulty.benchmark;
+
+import com.nicky.vaulty.apps.DisplayNameResolver;
+import com.nicky.vaulty.icon.IconDiskCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 应用名称解析和图标缓存命中路径的基准，每次调用处理一组已安装应用
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MetadataBenchmark {
+    private static final int UNMAPPED_APPS = 200;
+
+    private String[] packageNames;
+    private DisplayNameResolver resolver;
+    private IconDiskCache iconCache;
+    private final IconDiskCache.IconSource iconSource = () -> new byte[4096];
+
+    @Setup
+    public void setUp() throws IOException {
+        // 映射表中的常见应用，加上一批需要走通用格式化的应用
+        packageNames = new String[SyntheticUsage.PACKAGES.length + UNMAPPED_APPS];
+        System.arraycopy(SyntheticUsage.PACKAGES, 0, packageNames, 0, SyntheticUsage.PACKAGES.length);
+        for (int i = 0; i < UNMAPPED_APPS; i++) {
+            packageNames[SyntheticUsage.PACKAGES.length + i] = "com.vendor" + i + ".app.module" + (i % 7);
+        }
+
+        try (InputStream input = getClass().getResourceAsStream("/app_display_names.properties")) {
+            resolver = DisplayNameResolver.load(Collections.singletonList(input));
+        }
+
+        File iconDir = Files.createTempDirectory("icons").toFile();
+        iconCache = new IconDiskCache(iconDir, 64L * 1024 * 1024, ".png");
+        for (String packageName : packageNames) {
+            iconCache.getOrCreate(packageName, 1, iconSource);
+        }
+    }
+
+    @Benchmark
+    public int resolveNames() {
+        int length = 0;
+        for (String packageName : packageNames) {
+            length += resolver.resolve(packageName, "Label").length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int cachedIcons() throws IOException {
+        int found = 0;
+        for (String packageName : packageNames) {
+            if (iconCache.getOrCreate(packageName, 1, iconSource) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
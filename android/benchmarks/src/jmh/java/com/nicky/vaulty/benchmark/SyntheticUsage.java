@@ -0,0 +1,84 @@
+package com.nicky.vaulty.benchmark;
+
+import com.nicky.vaulty.usage.EventTypes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 合成使用事件
+ * 与 SimpleWebDatabase 的模拟数据分布一致：每天 8-23 点，每小时使用 3-8 个应用，
+ * 单次使用 30 秒到 15 分钟，两次使用间隔 0-5 分钟；每次使用产生 RESUMED / PAUSED，
+ * 并附带一个非前台的 ACTIVITY_STOPPED 事件，用于覆盖事件过滤
+ */
+public final class SyntheticUsage {
+    static final int ACTIVITY_STOPPED = 23;
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long DAY = 24 * HOUR;
+    // 2024-01-01 00:00 UTC
+    static final long EPOCH = 1704067200000L;
+
+    static final String[] PACKAGES = {
+            "com.tencent.mm", "com.tencent.mobileqq", "com.ss.android.ugc.aweme", "com.sina.weibo",
+            "com.eg.android.AlipayGphone", "com.taobao.taobao", "com.netease.cloudmusic", "com.zhihu.android",
+            "tv.danmaku.bili", "com.whatsapp", "com.instagram.android", "com.facebook.katana",
+            "com.twitter.android", "com.spotify.music", "com.netflix.mediaclient", "com.google.android.youtube",
+            "com.google.android.gm", "com.google.android.apps.maps", "com.reddit.frontpage", "com.slack",
+            "com.discord", "com.baidu.searchbox",
+    };
+
+    public final String[] packageNames;
+    public final String[] classNames;
+    public final long[] timestamps;
+    public final int[] eventTypes;
+    public final int size;
+    public final long startTime;
+    public final long endTime;
+
+    private SyntheticUsage(List<Object[]> events, long startTime, long endTime) {
+        this.size = events.size();
+        this.packageNames = new String[size];
+        this.classNames = new String[size];
+        this.timestamps = new long[size];
+        this.eventTypes = new int[size];
+        for (int i = 0; i < size; i++) {
+            Object[] event = events.get(i);
+            packageNames[i] = (String) event[0];
+            classNames[i] = (String) event[1];
+            timestamps[i] = (Long) event[2];
+            eventTypes[i] = (Integer) event[3];
+        }
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public static SyntheticUsage generate(int days, long seed) {
+        Random random = new Random(seed);
+        List<String> apps = new ArrayList<>();
+        Collections.addAll(apps, PACKAGES);
+        List<Object[]> events = new ArrayList<>();
+
+        for (int day = 0; day < days; day++) {
+            long dayStart = EPOCH + day * DAY;
+            for (int hour = 8; hour < 23; hour++) {
+                Collections.shuffle(apps, random);
+                int appCount = 3 + random.nextInt(6);
+                long hourEnd = dayStart + (hour + 1) * HOUR;
+                long time = dayStart + hour * HOUR;
+                while (time < hourEnd) {
+                    String packageName = apps.get(random.nextInt(appCount));
+                    String className = packageName + (random.nextBoolean() ? ".MainActivity" : ".DetailActivity");
+                    long end = Math.min(time + 30_000 + random.nextInt(15 * 60 * 1000 - 30_000), hourEnd);
+
+                    events.add(new Object[] { packageName, className, time, EventTypes.ACTIVITY_RESUMED });
+                    events.add(new Object[] { packageName, className, end, EventTypes.ACTIVITY_PAUSED });
+                    events.add(new Object[] { packageName, className, end, ACTIVITY_STOPPED });
+                    time = end + random.nextInt(5 * 60 * 1000);
+                }
+            }
+        }
+        return new SyntheticUsage(events, EPOCH, EPOCH + days * DAY);
+    }
+}
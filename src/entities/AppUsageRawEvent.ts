@@ -12,10 +12,10 @@ import {
  */
 @Entity('app_usage_raw_events')
 @Index(['timestamp'])
-@Index(['packageName'])
-@Index(['eventType'])
 @Index(['date'])
-@Index(['packageName', 'timestamp'])
+// 批量写入依赖该唯一索引通过 INSERT OR IGNORE 去重，同时覆盖按包名（及时间戳）的查询；
+// 旧版本数据库中的重复行在建索引前由 TypeORMManager.removeDuplicateRawEvents 删除
+@Index(['packageName', 'timestamp', 'eventType'], { unique: true })
 export class AppUsageRawEvent {
   @PrimaryGeneratedColumn()
   id!: number;
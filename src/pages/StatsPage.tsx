@@ -18,6 +18,7 @@ import HourlyUsageChart from '../components/Stats/HourlyUsageChart';
 import TopAppsList from '../components/Stats/TopAppsList';
 import { Capacitor } from '@capacitor/core';
 import { SimpleWebDatabase } from '../services/data-source/SimpleWebDatabase';
+import { appUsageService } from '../services/appUsageService';
 import '../components/Stats/StatsMobile.css';
 
 const StatsPage: React.FC = () => {
@@ -58,6 +59,13 @@ const StatsPage: React.FC = () => {
     initializeWebDatabase();
   }, []);
 
+  // 离开统计页面时取消仍在排队或执行的原生查询
+  useEffect(() => {
+    return () => {
+      appUsageService.cancelPendingRequests();
+    };
+  }, []);
+
   // 当日期改变时，更新数据
   useEffect(() => {
     const loadData = async () => {
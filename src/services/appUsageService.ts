@@ -1,8 +1,16 @@
 import { Capacitor, registerPlugin } from '@capacitor/core';
 import {
+  APP_USAGE_CANCELLED,
+  AppDisplayInfo,
   AppInfo,
   AppUsageEvent,
+  AppUsageEventSource,
+  AppUsageForegroundChange,
+  AppUsageForegroundState,
+  AppUsageForegroundTick,
+  AppUsageNativeSession,
   AppUsagePlugin,
+  decodeCompactEvents,
 } from '../types/app-usage.capacitor';
 import {
   AppUsageStat,
@@ -17,6 +25,18 @@ import { SimpleWebDatabase } from './data-source/SimpleWebDatabase';
 // 注册 Capacitor 插件
 const AppUsage = registerPlugin<AppUsagePlugin>('AppUsage');
 
+// 列表中展示的图标：按 48dp 在 3x 屏幕上的像素渲染为有损 WebP
+const LIST_ICON_OPTIONS = { iconSize: 144, iconFormat: 'webp', iconQuality: 80 } as const;
+
+// 同步时每页拉取的原始事件数
+const RAW_EVENT_PAGE_SIZE = 2000;
+
+// 距上次同步超过该时长时使用原生并行回填
+const BACKFILL_MIN_RANGE = 24 * 60 * 60 * 1000;
+
+// 已安装应用增量同步令牌的存储键
+const INSTALLED_APPS_TOKEN_KEY = 'vaulty_installed_apps_delta_token';
+
 // App 使用会话数据结构
 export interface AppUsageSession {
   packageName: string;
@@ -49,6 +69,10 @@ class AppUsageService {
   // 应用信息缓存
   private appInfoCache: Map<string, AppInfo> = new Map();
 
+  // 进行中的原生请求 ID，离开页面时通过 cancelPendingRequests 取消
+  private pendingRequests = new Set<string>();
+  private requestSequence = 0;
+
   // 数据仓库
   private repository: AppUsageRepository;
   private webDatabase: SimpleWebDatabase;
@@ -73,6 +97,45 @@ class AppUsageService {
     );
   }
 
+  /**
+   * 为耗时的原生调用分配请求 ID 并记录，调用结束后移除
+   */
+  private async tracked<T>(run: (requestId: string) => Promise<T>): Promise<T> {
+    const requestId = `req-${Date.now()}-${++this.requestSequence}`;
+    this.pendingRequests.add(requestId);
+    try {
+      return await run(requestId);
+    } finally {
+      this.pendingRequests.delete(requestId);
+    }
+  }
+
+  /**
+   * 调用是否因 cancelPendingRequests 被取消，取消后不应再回退到其他读取方式
+   */
+  private isCancelled(error: unknown): boolean {
+    return (error as { code?: string } | null)?.code === APP_USAGE_CANCELLED;
+  }
+
+  /**
+   * 取消全部进行中的原生请求（例如离开统计页面时），排队的请求不再执行，执行中的扫描尽早停止
+   * @returns 实际取消的请求数
+   */
+  async cancelPendingRequests(): Promise<number> {
+    if (!this.isSupported() || this.pendingRequests.size === 0) {
+      return 0;
+    }
+    const requestIds = Array.from(this.pendingRequests);
+    this.pendingRequests.clear();
+    try {
+      const { cancelled } = await AppUsage.cancelRequests({ requestIds });
+      return cancelled;
+    } catch (error) {
+      console.warn('取消原生请求失败:', error);
+      return 0;
+    }
+  }
+
   /**
    * 检查是否有使用情况统计的权限
    */
@@ -116,10 +179,13 @@ class AppUsageService {
     }
 
     try {
-      const { apps } = await AppUsage.getInstalledApps({ includeIcons });
+      const { apps } = await this.tracked((requestId) =>
+        AppUsage.getInstalledApps({ includeIcons, iconMode: 'file', ...LIST_ICON_OPTIONS, requestId })
+      );
 
       // 更新缓存
       apps.forEach((app) => {
+        this.resolveIconUri(app);
         this.appInfoCache.set(app.packageName, app);
       });
 
@@ -151,13 +217,20 @@ class AppUsageService {
     }
 
     try {
-      const appInfo = await AppUsage.getAppInfo({ packageName });
+      const appInfo = await this.tracked((requestId) =>
+        AppUsage.getAppInfo({ packageName, iconMode: 'file', ...LIST_ICON_OPTIONS, requestId })
+      );
+      this.resolveIconUri(appInfo);
 
       // 更新缓存
       this.appInfoCache.set(packageName, appInfo);
 
       return appInfo;
     } catch (error) {
+      if (this.isCancelled(error)) {
+        // 请求被取消，不缓存结果
+        return null;
+      }
       // 如果找不到应用，记录警告但不抛出错误
       console.warn(`无法获取应用信息: ${packageName}`, error);
 
@@ -168,6 +241,15 @@ class AppUsageService {
     }
   }
 
+  /**
+   * 把磁盘缓存的图标文件地址转换为 WebView 可加载的地址，存入 icon 字段
+   */
+  private resolveIconUri(app: AppInfo): void {
+    if (app.iconUri) {
+      app.icon = Capacitor.convertFileSrc(app.iconUri);
+    }
+  }
+
   /**
    * 获取一段时间内的应用使用报告
    */
@@ -180,59 +262,35 @@ class AppUsageService {
     }
 
     try {
-      // 查询原始使用事件数据
-      const { events } = await AppUsage.queryEvents({ startTime, endTime });
-
-      // 转换为应用使用会话
-      const sessions = this.processEventsToSessions(events);
+      // 在原生层完成事件配对，直接获取使用会话
+      const { sessions: nativeSessions } = await this.tracked((requestId) =>
+        AppUsage.querySessions({ startTime, endTime, requestId })
+      );
+      const sessions = this.toAppUsageSessions(nativeSessions);
 
       // 生成使用报告
       const report = await this.generateReport(sessions, startTime, endTime);
       return report;
     } catch (error) {
+      if (this.isCancelled(error)) {
+        return null;
+      }
       console.error('Failed to get usage report:', error);
       return null;
     }
   }
 
   /**
-   * 处理原始事件数据，转换为应用使用会话
+   * 将原生会话记录转换为应用使用会话
    */
-  private processEventsToSessions(events: AppUsageEvent[]): AppUsageSession[] {
-    const sessions: AppUsageSession[] = [];
-    const appResumeEvents: Map<string, number> = new Map();
-
-    // 按时间排序
-    events.sort((a, b) => a.timestamp - b.timestamp);
-
-    for (const event of events) {
-      if (event.eventType === 'ACTIVITY_RESUMED') {
-        // 应用进入前台
-        appResumeEvents.set(event.packageName, event.timestamp);
-      } else if (event.eventType === 'ACTIVITY_PAUSED') {
-        // 应用退出前台
-        const startTime = appResumeEvents.get(event.packageName);
-        if (startTime) {
-          const duration = event.timestamp - startTime;
-
-          // 只记录有效的会话（持续时间大于0）
-          if (duration > 0) {
-            sessions.push({
-              packageName: event.packageName,
-              appName: this.getDisplayNameFromPackage(event.packageName),
-              startTime,
-              endTime: event.timestamp,
-              duration,
-            });
-          }
-
-          // 清除开始时间
-          appResumeEvents.delete(event.packageName);
-        }
-      }
-    }
-
-    return sessions;
+  private toAppUsageSessions(sessions: AppUsageNativeSession[]): AppUsageSession[] {
+    return sessions.map((session) => ({
+      packageName: session.packageName,
+      appName: this.getDisplayNameFromPackage(session.packageName),
+      startTime: session.startTime,
+      endTime: session.endTime,
+      duration: session.duration,
+    }));
   }
 
   /**
@@ -328,51 +386,71 @@ class AppUsageService {
       throw new Error('不支持的平台或没有足够权限');
     }
 
+    // 各步骤耗时，同步结束时与原生性能统计一起输出
+    const stepTimings: Record<string, number> = {};
+    let stepStart = performance.now();
+    const markStep = (step: string) => {
+      const current = performance.now();
+      stepTimings[step] = Math.round(current - stepStart);
+      stepStart = current;
+    };
+
     try {
       console.log('开始同步应用使用数据...');
       const now = Date.now();
 
-      // 第一步：同步已安装应用信息到数据库（包含本地化名称和图标）
+      // 第一步：增量同步已安装应用信息到数据库（包含本地化名称和图标）
       console.log('正在同步已安装应用信息到数据库...');
-      const installedApps = await this.getInstalledApps(true); // 包含图标
-      console.log(`成功获取 ${installedApps.length} 个已安装应用信息`);
-
-      // 将已安装应用信息保存到数据库
-      const syncAppsResult = await this.installedAppRepository.syncInstalledApps(installedApps, now);
+      const syncAppsResult = await this.syncInstalledAppsDelta(now);
       if (!syncAppsResult) {
         throw new Error('同步已安装应用信息到数据库失败');
       }
+      markStep('installedApps');
 
-      // 更新内存缓存
-      const appInfoMap = new Map<string, AppInfo>();
-      installedApps.forEach(app => {
-        this.appInfoCache.set(app.packageName, app);
+      // 从数据库加载应用名称和图标
+      const appInfoMap = new Map<string, AppDisplayInfo>();
+      const activeApps = await this.installedAppRepository.getActiveInstalledApps();
+      activeApps.forEach(app => {
         appInfoMap.set(app.packageName, app);
       });
+      markStep('loadAppInfo');
 
       // 第二步：获取原始事件数据
       const lastSync = await this.repository.getLastSyncTime();
       console.log(`查询原始事件数据: ${new Date(lastSync).toLocaleString()} - ${new Date(now).toLocaleString()}`);
       
-      const { events } = await AppUsage.queryEvents({ startTime: lastSync, endTime: now });
-      
-      if (!events || events.length === 0) {
+      // 第三步：把新事件追加到原生事件日志，之后的读取都走日志的顺序扫描；日志不可用时直接查询系统
+      const eventSource = await this.syncEventJournal(lastSync);
+      markStep('eventJournal');
+
+      // 跨越多天且只能从系统读取时，在原生层按天并行回填，一次完成原始事件写入和会话配对
+      const backfilled = eventSource === 'system' && now - lastSync > BACKFILL_MIN_RANGE
+        ? await this.backfillHistory(lastSync, now)
+        : null;
+
+      // 分页拉取并保存原始事件数据，内存占用只与页大小相关
+      const eventCount = backfilled
+        ? backfilled.eventCount
+        : await this.syncRawEvents(lastSync, now, eventSource);
+      markStep('rawEvents');
+
+      if (eventCount === 0) {
         console.log('没有新的原始事件数据需要同步');
         // 即使没有新的事件数据，也更新同步时间
         await this.repository.saveLastSyncTime(now);
         return true;
       }
 
-      console.log(`发现 ${events.length} 条原始事件数据`);
-
-      // 第三步：保存原始事件数据到数据库
-      const saveRawEventsResult = await this.rawEventRepository.saveRawEvents(events);
-      if (!saveRawEventsResult) {
-        throw new Error('保存原始事件数据失败');
-      }
+      console.log(`发现 ${eventCount} 条原始事件数据`);
 
-      // 第四步：处理原始事件数据，生成使用会话记录
-      const sessions = this.processEventsToSessions(events);
+      // 第四步：在原生层配对事件生成使用会话记录（跨越同步边界的会话会被截断后分别记录）
+      const nativeSessions = backfilled
+        ? backfilled.sessions
+        : (await this.tracked((requestId) =>
+          AppUsage.querySessions({ startTime: lastSync, endTime: now, source: eventSource, requestId })
+        )).sessions;
+      const sessions = this.toAppUsageSessions(nativeSessions);
+      markStep('sessions');
       
       if (sessions.length === 0) {
         console.log('没有有效的使用会话数据');
@@ -410,6 +488,7 @@ class AppUsageService {
       if (!saveResult) {
         throw new Error('保存应用使用记录失败');
       }
+      markStep('saveRecords');
 
       // 第七步：聚合小时统计数据
       const affectedDates = new Set(records.map(r => r.date));
@@ -417,26 +496,344 @@ class AppUsageService {
       
       let aggregatedDates = 0;
       for (const date of affectedDates) {
-        const aggregateResult = await this.hourlyStatsRepository.aggregateHourlyStats(date);
+        const aggregateResult = await this.aggregateHourlyStatsNative(date, appInfoMap, eventSource);
         if (aggregateResult) {
           aggregatedDates++;
         }
       }
       
       console.log(`✅ 成功聚合 ${aggregatedDates}/${affectedDates.size} 个日期的小时统计数据`);
+      markStep('hourlyStats');
 
       // 第八步：更新同步时间
       await this.repository.saveLastSyncTime(now);
 
       const uniqueApps = new Set(records.map(r => r.packageName)).size;
-      console.log(`✅ 同步完成: ${events.length} 条原始事件，${records.length} 条使用记录，涉及 ${uniqueApps} 个应用`);
+      console.log(`✅ 同步完成: ${eventCount} 条原始事件，${records.length} 条使用记录，涉及 ${uniqueApps} 个应用`);
       return true;
     } catch (error) {
-      console.error('❌ 同步应用使用数据失败:', error);
+      if (this.isCancelled(error)) {
+        // 已写入的事件会被下次同步忽略，同步时间不更新，下次从头继续
+        console.log('同步已取消');
+      } else {
+        console.error('❌ 同步应用使用数据失败:', error);
+      }
+      throw error;
+    } finally {
+      await this.logPerfStats(stepTimings);
+    }
+  }
+
+  /**
+   * 输出 JS 侧各步骤耗时和原生层性能统计
+   */
+  private async logPerfStats(stepTimings: Record<string, number>): Promise<void> {
+    console.log('同步各步骤耗时 (ms):', stepTimings);
+    try {
+      const { counters, histograms } = await AppUsage.getPerfStats();
+      console.log('原生计数器:', counters);
+      console.table(
+        Object.entries(histograms).map(([name, stats]) => ({
+          name,
+          count: stats.count,
+          totalMs: Math.round(stats.totalMs),
+          p50Ms: stats.p50Ms,
+          p95Ms: stats.p95Ms,
+          maxMs: stats.maxMs,
+        }))
+      );
+    } catch (error) {
+      console.warn('获取原生性能统计失败:', error);
+    }
+  }
+
+  /**
+   * 增量同步已安装应用
+   * 令牌保存在本地，令牌缺失或失效时原生层返回全量数据
+   */
+  private async syncInstalledAppsDelta(syncTime: number): Promise<boolean> {
+    const sinceToken = localStorage.getItem(INSTALLED_APPS_TOKEN_KEY) ?? undefined;
+    const delta = await this.tracked((requestId) =>
+      AppUsage.getInstalledAppsDelta({
+        sinceToken,
+        includeIcons: true,
+        iconMode: 'file',
+        ...LIST_ICON_OPTIONS,
+        requestId,
+      })
+    );
+
+    const changedApps = [...delta.added, ...delta.updated];
+    changedApps.forEach((app) => {
+      this.resolveIconUri(app);
+      this.appInfoCache.set(app.packageName, app);
+    });
+    delta.removed.forEach((packageName) => this.appInfoCache.delete(packageName));
+
+    let result: boolean;
+    if (delta.full) {
+      console.log(`全量同步 ${delta.added.length} 个已安装应用`);
+      result = await this.installedAppRepository.syncInstalledApps(delta.added, syncTime);
+    } else if (changedApps.length === 0 && delta.removed.length === 0) {
+      console.log('已安装应用没有变化');
+      result = true;
+    } else {
+      console.log(`已安装应用变化: 新增 ${delta.added.length} 个，更新 ${delta.updated.length} 个，删除 ${delta.removed.length} 个`);
+      result = await this.installedAppRepository.applyInstalledAppsDelta(changedApps, delta.removed, syncTime);
+    }
+
+    // 只有写入数据库成功后才保存令牌，否则下次重新获取这部分变化
+    if (result) {
+      localStorage.setItem(INSTALLED_APPS_TOKEN_KEY, delta.token);
+    }
+    return result;
+  }
+
+  /**
+   * 把系统中的新事件追加到原生事件日志
+   * @param since 本次同步需要读取的起点
+   * @returns 后续读取事件使用的来源，日志写入失败或没有覆盖 since 之后的全部事件时回退到系统
+   */
+  private async syncEventJournal(since: number): Promise<AppUsageEventSource> {
+    try {
+      const { appended, coveredFrom } = await this.tracked((requestId) =>
+        AppUsage.syncEventJournal({ since, requestId })
+      );
+      console.log(`事件日志追加 ${appended} 条事件`);
+      if (coveredFrom > since) {
+        console.log(`事件日志从 ${new Date(coveredFrom).toLocaleString()} 开始，本次直接查询系统事件`);
+        return 'system';
+      }
+      return 'journal';
+    } catch (error) {
+      if (this.isCancelled(error)) {
+        throw error;
+      }
+      console.warn('写入事件日志失败，直接查询系统事件:', error);
+      return 'system';
+    }
+  }
+
+  /**
+   * 并行回填历史事件，失败时返回 null 由调用方回退到顺序读取
+   * 原生层按分片推送事件和会话，事件按到达顺序逐批写入数据库，不在内存中累积整个范围
+   */
+  private async backfillHistory(
+    startTime: number,
+    endTime: number
+  ): Promise<{ eventCount: number; sessions: AppUsageNativeSession[] } | null> {
+    const streamId = `backfill-${Date.now()}-${++this.requestSequence}`;
+    const sessions: AppUsageNativeSession[] = [];
+    let saving: Promise<void> = Promise.resolve();
+    const batchHandle = await AppUsage.addListener('backfillBatch', (batch) => {
+      if (batch.streamId !== streamId) {
+        return;
+      }
+      sessions.push(...batch.sessions);
+      // 串行写入，前一批失败后不再写入后续批次
+      saving = saving.then(() => this.saveRawEvents(decodeCompactEvents(batch.compact)));
+      saving.catch(() => undefined);
+    });
+    const progressHandle = await AppUsage.addListener('backfillProgress', (progress) => {
+      if (progress.streamId !== streamId) {
+        return;
+      }
+      console.log(`回填进度: ${progress.completedSlices}/${progress.totalSlices}，本段 ${progress.eventCount} 条事件`);
+    });
+    try {
+      const { eventCount, batchCount } = await this.tracked((requestId) =>
+        AppUsage.backfill({ startTime, endTime, streamId, requestId })
+      );
+      await saving;
+      console.log(`原生回填: 读取 ${eventCount} 条，${batchCount} 批，${sessions.length} 个会话`);
+      return { eventCount, sessions };
+    } catch (error) {
+      if (this.isCancelled(error)) {
+        throw error;
+      }
+      console.warn('原生回填失败，回退到顺序读取:', error);
+      return null;
+    } finally {
+      await batchHandle.remove();
+      await progressHandle.remove();
+    }
+  }
+
+  /**
+   * 通过 TypeORM 连接分块写入原始事件，已存在的事件由唯一索引忽略
+   */
+  private async saveRawEvents(events: AppUsageEvent[]): Promise<void> {
+    if (events.length === 0) {
+      return;
+    }
+    const saveRawEventsResult = await this.rawEventRepository.saveRawEvents(events);
+    if (!saveRawEventsResult) {
+      throw new Error('保存原始事件数据失败');
+    }
+  }
+
+  /**
+   * 分页拉取原始前台事件，逐页通过 TypeORM 保存到数据库
+   * @returns 拉取的事件总数
+   */
+  private async syncRawEvents(
+    startTime: number,
+    endTime: number,
+    source: AppUsageEventSource
+  ): Promise<number> {
+    let cursor: string | undefined;
+    let eventCount = 0;
+
+    do {
+      const options = {
+        startTime,
+        endTime,
+        pageSize: RAW_EVENT_PAGE_SIZE,
+        cursor,
+        format: 'compact' as const,
+      };
+      const page = await this.tracked((requestId) =>
+        source === 'journal'
+          ? AppUsage.queryJournal({ ...options, requestId })
+          : AppUsage.queryEvents({ ...options, requestId })
+      );
+
+      const events = decodeCompactEvents(page.compact);
+      await this.saveRawEvents(events);
+      eventCount += events.length;
+
+      cursor = page.nextCursor;
+    } while (cursor);
+
+    return eventCount;
+  }
+
+  /**
+   * 实时监听前台应用，变化由原生层推送
+   * @returns 当前前台应用和停止监听的函数
+   */
+  async watchForegroundApp(
+    onChange: (change: AppUsageForegroundChange) => void,
+    onTick: (tick: AppUsageForegroundTick) => void,
+    options?: { intervalMs?: number; debounceMs?: number }
+  ): Promise<{ current: AppUsageForegroundState; stop: () => Promise<void> }> {
+    if (!this.isSupported() || !(await this.hasPermission())) {
+      throw new Error('不支持的平台或没有足够权限');
+    }
+    const changeHandle = await AppUsage.addListener('foregroundChanged', onChange);
+    const tickHandle = await AppUsage.addListener('foregroundTick', onTick);
+    try {
+      const current = await AppUsage.startForegroundWatch(options);
+      return {
+        current,
+        stop: async () => {
+          await AppUsage.stopForegroundWatch();
+          await changeHandle.remove();
+          await tickHandle.remove();
+        },
+      };
+    } catch (error) {
+      await changeHandle.remove();
+      await tickHandle.remove();
       throw error;
     }
   }
 
+  /**
+   * 查询单个应用的前台事件，过滤在原生层完成，只返回时间戳和事件类型
+   */
+  async getAppForegroundEvents(
+    packageName: string,
+    startTime: number,
+    endTime: number
+  ): Promise<Pick<AppUsageEvent, 'timestamp' | 'eventType'>[]> {
+    if (!this.isSupported() || !(await this.hasPermission())) {
+      return [];
+    }
+    const { events } = await this.tracked((requestId) =>
+      AppUsage.queryEvents({
+        startTime,
+        endTime,
+        packageNames: [packageName],
+        fields: ['timestamp', 'eventType'],
+        requestId,
+      })
+    );
+    return events;
+  }
+
+  /**
+   * 查询亮屏 / 熄屏和锁屏 / 解锁事件，用于计算亮屏时长和解锁次数
+   */
+  async getScreenStateEvents(
+    startTime: number,
+    endTime: number
+  ): Promise<Pick<AppUsageEvent, 'timestamp' | 'eventType'>[]> {
+    if (!this.isSupported() || !(await this.hasPermission())) {
+      return [];
+    }
+    const { events } = await this.tracked((requestId) =>
+      AppUsage.queryEvents({
+        startTime,
+        endTime,
+        eventTypes: ['SCREEN_INTERACTIVE', 'SCREEN_NON_INTERACTIVE', 'KEYGUARD_SHOWN', 'KEYGUARD_HIDDEN'],
+        fields: ['timestamp', 'eventType'],
+        requestId,
+      })
+    );
+    return events;
+  }
+
+  /**
+   * 在原生层聚合指定日期的小时统计并保存，失败时回退到从原始事件聚合
+   */
+  private async aggregateHourlyStatsNative(
+    date: string,
+    appInfoMap: Map<string, AppDisplayInfo>,
+    source: AppUsageEventSource
+  ): Promise<boolean> {
+    try {
+      const aggregates = await this.tracked((requestId) =>
+        AppUsage.queryHourlyAggregates({ date, source, requestId })
+      );
+      return await this.hourlyStatsRepository.saveHourlyAggregates(date, aggregates, appInfoMap);
+    } catch (error) {
+      if (this.isCancelled(error)) {
+        throw error;
+      }
+      console.warn(`原生聚合日期 ${date} 失败，回退到原始事件聚合:`, error);
+      return await this.hourlyStatsRepository.aggregateHourlyStats(date);
+    }
+  }
+
+  /**
+   * 把后台采集维护的汇总写入聚合表并返回，没有汇总数据时返回 null
+   */
+  private async loadDailyRollup(date: string): Promise<HourlyUsageStat[] | null> {
+    try {
+      const { days } = await this.tracked((requestId) => AppUsage.getDailyRollups({ startDate: date, requestId }));
+      const day = days.find(d => d.date === date);
+      if (!day || day.totalDuration === 0) {
+        return null;
+      }
+
+      const appInfoMap = new Map<string, AppDisplayInfo>();
+      const activeApps = await this.installedAppRepository.getActiveInstalledApps();
+      activeApps.forEach(app => {
+        appInfoMap.set(app.packageName, app);
+      });
+
+      const saved = await this.hourlyStatsRepository.saveHourlyAggregates(date, day, appInfoMap);
+      return saved ? await this.hourlyStatsRepository.getHourlyUsageStats(date) : null;
+    } catch (error) {
+      if (this.isCancelled(error)) {
+        throw error;
+      }
+      console.warn(`读取日期 ${date} 的后台汇总失败:`, error);
+      return null;
+    }
+  }
+
   /**
    * 获取应用使用统计数据
    * 按应用分组的使用统计
@@ -475,11 +872,18 @@ class AppUsageService {
           return aggregatedStats;
         }
         
-        // 2. 如果聚合表没有数据，尝试从原始事件计算
+        // 2. 聚合表没有数据时，读取后台采集已经汇总好的数据
+        const rollupStats = await this.loadDailyRollup(date);
+        if (rollupStats) {
+          console.log(`✅ 从后台汇总获取日期 ${date} 的小时统计数据`);
+          return rollupStats;
+        }
+
+        // 3. 如果仍然没有数据，尝试从原始事件计算
         console.log(`聚合表无数据，从原始事件计算日期 ${date} 的小时统计...`);
         const rawStats = await this.rawEventRepository.getHourlyUsageStats(date);
         
-        // 3. 如果原始事件有数据，则同时聚合保存到聚合表
+        // 4. 如果原始事件有数据，则同时聚合保存到聚合表
         const hasRawData = rawStats.some(stat => stat.totalDuration > 0);
         if (hasRawData) {
           console.log(`从原始事件计算出数据，同时聚合保存到聚合表...`);
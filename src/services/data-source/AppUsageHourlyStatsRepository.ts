@@ -3,6 +3,7 @@ import { AppUsageHourlyStats } from '../../entities/AppUsageHourlyStats';
 import { AppUsageRawEvent } from '../../entities/AppUsageRawEvent';
 import { InstalledApp } from '../../entities/InstalledApp';
 import { HourlyUsageStat } from '../../types/appUsage';
+import { AppDisplayInfo, AppUsageHourlyAggregates } from '../../types/app-usage.capacitor';
 
 /**
  * 小时级统计数据仓库
@@ -146,6 +147,49 @@ export class AppUsageHourlyStatsRepository {
     }
   }
 
+  /**
+   * 保存原生层已聚合好的小时统计数据
+   * @param date 日期 (YYYY-MM-DD)
+   * @param aggregates queryHourlyAggregates 的返回结果
+   * @param appInfoMap 应用信息（名称、图标）
+   */
+  async saveHourlyAggregates(
+    date: string,
+    aggregates: AppUsageHourlyAggregates,
+    appInfoMap: Map<string, AppDisplayInfo>
+  ): Promise<boolean> {
+    try {
+      const statsToSave: AppUsageHourlyStats[] = [];
+      for (const hourStat of aggregates.hours) {
+        for (const app of hourStat.apps) {
+          const appInfo = appInfoMap.get(app.packageName);
+          const hourlyStatsEntity = new AppUsageHourlyStats();
+          hourlyStatsEntity.date = date;
+          hourlyStatsEntity.hour = hourStat.hour;
+          hourlyStatsEntity.packageName = app.packageName;
+          hourlyStatsEntity.appName = appInfo?.appName || this.getDisplayNameFromPackage(app.packageName);
+          hourlyStatsEntity.totalDuration = app.totalDuration;
+          hourlyStatsEntity.usageCount = app.usageCount;
+          hourlyStatsEntity.icon = appInfo?.icon;
+          statsToSave.push(hourlyStatsEntity);
+        }
+      }
+
+      await this.typeormManager.executeTransaction(async (manager) => {
+        await manager.delete(AppUsageHourlyStats, { date });
+        if (statsToSave.length > 0) {
+          await manager.save(AppUsageHourlyStats, statsToSave);
+        }
+      });
+
+      console.log(`✅ 保存日期 ${date} 的原生聚合小时统计，共 ${statsToSave.length} 条记录`);
+      return true;
+    } catch (error) {
+      console.error(`❌ 保存日期 ${date} 的原生聚合小时统计失败:`, error);
+      return false;
+    }
+  }
+
   /**
    * 获取指定日期的每小时使用统计
    * @param date 日期 (YYYY-MM-DD)
@@ -4,6 +4,9 @@ import { InstalledApp } from '../../entities/InstalledApp';
 import { AppUsageEvent } from '../../types/app-usage.capacitor';
 import { HourlyUsageStat } from '../../types/appUsage';
 
+// 每条 INSERT 语句包含的事件数
+const RAW_EVENT_INSERT_CHUNK = 150;
+
 /**
  * 原始事件数据仓库
  * 管理从 Android 系统获取的原始事件数据
@@ -62,7 +65,16 @@ export class AppUsageRawEventRepository {
           return rawEvent;
         });
 
-        await manager.save(AppUsageRawEvent, rawEvents);
+        // 依靠唯一索引忽略已存在的事件；分块插入避免超出 SQLite 参数个数限制
+        for (let i = 0; i < rawEvents.length; i += RAW_EVENT_INSERT_CHUNK) {
+          await manager
+            .createQueryBuilder()
+            .insert()
+            .into(AppUsageRawEvent)
+            .values(rawEvents.slice(i, i + RAW_EVENT_INSERT_CHUNK))
+            .orIgnore()
+            .execute();
+        }
       });
 
       console.log(`✅ 成功保存 ${events.length} 条原始事件数据`);
@@ -142,6 +142,70 @@ export class InstalledAppRepository {
     }
   }
 
+  /**
+   * 应用已安装应用的增量变化
+   * @param changedApps 新增或更新的应用
+   * @param removedPackageNames 已卸载应用的包名
+   * @param syncTime 同步时间戳
+   */
+  async applyInstalledAppsDelta(
+    changedApps: AppInfo[],
+    removedPackageNames: string[],
+    syncTime: number
+  ): Promise<boolean> {
+    try {
+      await this.typeormManager.executeTransaction(async (manager) => {
+        for (const packageName of removedPackageNames) {
+          await manager.update(InstalledApp,
+            { packageName, isDeleted: false },
+            { isDeleted: true, lastSyncTime: syncTime }
+          );
+        }
+
+        for (const appInfo of changedApps) {
+          // 包括之前被删除后重新安装的应用
+          const existingApp = await manager.findOne(InstalledApp, {
+            where: { packageName: appInfo.packageName }
+          });
+
+          if (existingApp) {
+            await manager.update(InstalledApp, { id: existingApp.id }, {
+              appName: appInfo.appName,
+              versionName: appInfo.versionName,
+              versionCode: appInfo.versionCode,
+              firstInstallTime: appInfo.firstInstallTime,
+              lastUpdateTime: appInfo.lastUpdateTime,
+              isSystemApp: appInfo.isSystemApp,
+              icon: appInfo.icon,
+              isDeleted: false,
+              lastSyncTime: syncTime
+            });
+          } else {
+            const newApp = new InstalledApp();
+            newApp.packageName = appInfo.packageName;
+            newApp.appName = appInfo.appName;
+            newApp.versionName = appInfo.versionName;
+            newApp.versionCode = appInfo.versionCode;
+            newApp.firstInstallTime = appInfo.firstInstallTime;
+            newApp.lastUpdateTime = appInfo.lastUpdateTime;
+            newApp.isSystemApp = appInfo.isSystemApp;
+            newApp.icon = appInfo.icon;
+            newApp.isDeleted = false;
+            newApp.lastSyncTime = syncTime;
+
+            await manager.save(InstalledApp, newApp);
+          }
+        }
+      });
+
+      console.log(`✅ 增量同步完成: 变化 ${changedApps.length} 个，删除 ${removedPackageNames.length} 个应用`);
+      return true;
+    } catch (error) {
+      console.error('❌ 增量同步已安装应用失败:', error);
+      return false;
+    }
+  }
+
   /**
    * 获取所有有效的已安装应用（未删除）
    */
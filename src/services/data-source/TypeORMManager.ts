@@ -116,12 +116,15 @@ export class TypeORMManager {
           driver: TypeORMManager.sqliteConnection,
         database: this.dbName,
         entities: [AppUsageRecord, AppUsageSync, Diary, Todo, InstalledApp, AppUsageRawEvent, AppUsageHourlyStats],
-        synchronize: true, // 让 TypeORM 管理表结构
+        // 表结构由下面的 synchronize 调用管理，先清理会让新索引创建失败的旧数据
+        synchronize: false,
           logging: ['error', 'warn'],
         } as any);
 
       // 初始化数据源
       await this.dataSource.initialize();
+      await this.removeDuplicateRawEvents(this.dataSource);
+      await this.dataSource.synchronize();
 
       this.isInitialized = true;
       console.log('TypeORM数据源初始化成功');
@@ -134,6 +137,33 @@ export class TypeORMManager {
     }
   }
 
+  /**
+   * 删除原始事件表中 (packageName, timestamp, eventType) 重复的行，只保留 id 最小的一条
+   * 旧版本没有唯一索引，存在重复行时同步表结构会因创建唯一索引失败而导致整个数据库不可用；
+   * 唯一索引已存在时跳过
+   */
+  private async removeDuplicateRawEvents(dataSource: DataSource): Promise<void> {
+    const tables = await dataSource.query(
+      "SELECT name FROM sqlite_master WHERE type = 'table' AND name = 'app_usage_raw_events'"
+    );
+    if (tables.length === 0) {
+      return;
+    }
+    const uniqueIndexes = await dataSource.query(
+      "SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = 'app_usage_raw_events' " +
+        "AND sql LIKE 'CREATE UNIQUE INDEX%'"
+    );
+    if (uniqueIndexes.length > 0) {
+      return;
+    }
+
+    console.log('清理重复的原始事件...');
+    await dataSource.query(
+      'DELETE FROM app_usage_raw_events WHERE id NOT IN (' +
+        'SELECT MIN(id) FROM app_usage_raw_events GROUP BY packageName, timestamp, eventType)'
+    );
+  }
+
   /**
    * 确保数据源已初始化
    */
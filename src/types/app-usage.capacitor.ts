@@ -1,3 +1,5 @@
+import type { PluginListenerHandle } from '@capacitor/core';
+
 export interface AppUsagePlugin {
   /**
    * 检查是否有使用情况统计的权限
@@ -9,31 +11,381 @@ export interface AppUsagePlugin {
    */
   requestUsagePermission(): Promise<{ value: boolean }>;
 
+  /**
+   * 取消仍在排队或执行中的请求，被取消的调用以 code 为 CANCELLED 的错误拒绝
+   * 返回实际取消的数量，已结束或不存在的请求被忽略
+   */
+  cancelRequests(options: { requestIds: string[] }): Promise<{ cancelled: number }>;
+
   /**
    * 查询应用使用事件数据
+   * 传入 pageSize 时分页返回，把上一页的 nextCursor 作为 cursor 传入获取下一页
+   * 原生层缓存已结束整点小时的事件，重复查询只会重新扫描当前小时
+   * 过滤条件和字段投影在原生扫描中应用，未列在 fields 中的字段不会返回
+   */
+  queryEvents<F extends AppUsageEventField = AppUsageEventField>(
+    options: AppUsageQueryEventsOptions & { format?: 'json'; fields?: F[] }
+  ): Promise<{
+    events: Pick<AppUsageEvent, F>[];
+    nextCursor?: string; // 没有更多数据时不返回
+  }>;
+
+  /**
+   * 以紧凑格式查询应用使用事件数据，使用 decodeCompactEvents 解码
+   * 紧凑格式的行结构固定，fields 不包含 className 时只省略类名
+   */
+  queryEvents(options: AppUsageQueryEventsOptions & { format: 'compact'; fields?: AppUsageEventField[] }): Promise<{
+    compact: AppUsageCompactEvents;
+    nextCursor?: string;
+  }>;
+
+  /**
+   * 流式查询应用使用事件数据
+   * 扫描过程中通过 usageEventsBatch 事件分批推送，扫描结束后返回汇总
+   */
+  streamEvents(options: AppUsageEventFilter & AppUsageRequestOptions & {
+    startTime: number;
+    endTime: number;
+    batchSize?: number;
+    streamId?: string;
+    fields?: AppUsageEventField[];
+  }): Promise<{ streamId: string; eventCount: number; batchCount: number }>;
+
+  addListener(
+    eventName: 'usageEventsBatch',
+    listenerFunc: (batch: AppUsageEventBatch) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * 开始监听前台应用，原生层按 intervalMs（默认 5000，最小 1000）增量读取新事件，
+   * 只推送变化：foregroundChanged（切换需保持 debounceMs，默认 2000）和 foregroundTick（时长增量）
+   * 返回当前前台应用；应用进入后台时自动暂停，回到前台后补齐
+   */
+  startForegroundWatch(options?: { intervalMs?: number; debounceMs?: number }): Promise<AppUsageForegroundState>;
+
+  stopForegroundWatch(): Promise<void>;
+
+  addListener(
+    eventName: 'foregroundChanged',
+    listenerFunc: (change: AppUsageForegroundChange) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  addListener(
+    eventName: 'foregroundTick',
+    listenerFunc: (tick: AppUsageForegroundTick) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * 查询应用使用会话（在原生层完成 RESUMED/PAUSED 事件配对）
+   */
+  querySessions(
+    options: { startTime: number; endTime: number; source?: AppUsageEventSource } & AppUsageRequestOptions
+  ): Promise<{
+    sessions: AppUsageNativeSession[];
+  }>;
+
+  /**
+   * 在原生层按小时 / 按应用聚合使用时长
+   * 传入 date (YYYY-MM-DD) 或 startTime / endTime
+   */
+  queryHourlyAggregates(
+    options: ({ date: string } | { startTime: number; endTime: number }) & { source?: AppUsageEventSource } &
+      AppUsageRequestOptions
+  ): Promise<AppUsageHourlyAggregates>;
+
+  /**
+   * 把系统中尚未写入的事件追加到原生事件日志，日志不受系统事件保留期限制
+   * 日志为空时从 since 和 7 天前中较早的一个开始采集；日志只包含 [coveredFrom, coveredUntil) 内的事件
+   */
+  syncEventJournal(options?: { since?: number } & AppUsageRequestOptions): Promise<{
+    appended: number;
+    coveredFrom: number;
+    coveredUntil: number;
+  }>;
+
+  /**
+   * 从原生事件日志读取事件，参数和返回格式与 queryEvents 相同
+   */
+  queryJournal<F extends AppUsageEventField = AppUsageEventField>(
+    options: AppUsageQueryEventsOptions & { format?: 'json'; fields?: F[] }
+  ): Promise<{
+    events: Pick<AppUsageEvent, F>[];
+    nextCursor?: string;
+  }>;
+
+  queryJournal(options: AppUsageQueryEventsOptions & { format: 'compact'; fields?: AppUsageEventField[] }): Promise<{
+    compact: AppUsageCompactEvents;
+    nextCursor?: string;
+  }>;
+
+  /**
+   * 长时间范围的历史回填：按 sliceMs（默认一天，最小一小时）切分，
+   * 以 parallelism（默认为核心数，最多 4）个线程并行查询系统事件，按时间顺序合并后
+   * 配对会话（跨分片的会话会被正确拼接）
+   * 每合并一个分片先推送 backfillBatch（该分片的紧凑格式前台事件和已结束的会话），再推送 backfillProgress；
+   * 最后一批带 done 标记，包含范围结束时仍未结束的会话，扫描结束后只返回计数
+   */
+  backfill(options: AppUsageRequestOptions & {
+    startTime: number;
+    endTime: number;
+    sliceMs?: number;
+    parallelism?: number;
+    streamId?: string;
+  }): Promise<{ streamId: string; eventCount: number; sessionCount: number; batchCount: number }>;
+
+  addListener(
+    eventName: 'backfillBatch',
+    listenerFunc: (batch: AppUsageBackfillBatch) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  addListener(
+    eventName: 'backfillProgress',
+    listenerFunc: (progress: AppUsageBackfillProgress) => void
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * 开启或关闭后台周期采集（JobScheduler），intervalMinutes 最小为 15，默认 60
    */
-  queryEvents(options: { startTime: number; endTime: number }): Promise<{
-    events: AppUsageEvent[];
+  setBackgroundCollection(options: { enabled: boolean; intervalMinutes?: number }): Promise<{ enabled: boolean }>;
+
+  /**
+   * 读取后台采集维护的按天汇总，只包含已结束的会话
+   */
+  getDailyRollups(options: { startDate: string; endDate?: string } & AppUsageRequestOptions): Promise<{
+    foldedUntil: number; // 已折叠事件的时间终点
+    days: AppUsageRollupDay[];
   }>;
 
+  /**
+   * 删除事件日志中 before 之前整天的段文件
+   */
+  compactJournal(options: { before: number } & AppUsageRequestOptions): Promise<{ removedSegments: number; segmentCount: number }>;
+
   /**
    * 获取特定应用的信息
    */
-  getAppInfo(options: { packageName: string }): Promise<AppInfo>;
+  getAppInfo(
+    options: { packageName: string; iconMode?: AppIconMode } & AppIconOptions & AppUsageRequestOptions
+  ): Promise<AppInfo>;
 
   /**
    * 获取所有已安装应用的信息
    */
-  getInstalledApps(options: { includeIcons: boolean }): Promise<{
+  getInstalledApps(
+    options: { includeIcons: boolean; iconMode?: AppIconMode } & AppIconOptions & AppUsageRequestOptions
+  ): Promise<{
     apps: AppInfo[];
+    resolvedFields: AppMetadataSummary;
   }>;
+
+  /**
+   * 增量获取已安装应用，只返回自 sinceToken 以来发生变化的应用
+   */
+  getInstalledAppsDelta(options: {
+    sinceToken?: string;
+    includeIcons: boolean;
+    iconMode?: AppIconMode;
+  } & AppIconOptions & AppUsageRequestOptions): Promise<InstalledAppsDelta>;
+
+  /**
+   * 获取原生层的性能统计：各方法的调用次数和耗时分布、扫描/返回事件数等计数器
+   */
+  getPerfStats(): Promise<NativePerfStats>;
+
+  /**
+   * 清空原生层的性能统计
+   */
+  resetPerfStats(): Promise<void>;
+}
+
+/**
+ * 耗时调用的调度参数
+ * 耗时调用在原生工作线程上按优先级执行，权限检查等轻量调用不会排在它们后面；
+ * 传入 requestId 后可以用 cancelRequests 取消，参数完全相同的进行中调用会合并为一次执行
+ */
+export interface AppUsageRequestOptions {
+  requestId?: string;
+  priority?: AppUsageRequestPriority;
+}
+
+export type AppUsageRequestPriority = 'high' | 'normal' | 'low';
+
+/**
+ * 调用被 cancelRequests 取消时错误的 code
+ */
+export const APP_USAGE_CANCELLED = 'CANCELLED';
+
+/**
+ * 单个阶段的耗时分布，单位毫秒；分位数为近似值
+ */
+export interface NativeLatencyStats {
+  count: number;
+  totalMs: number;
+  maxMs: number;
+  p50Ms: number;
+  p95Ms: number;
+  p99Ms: number;
+}
+
+/**
+ * 原生性能统计
+ */
+export interface NativePerfStats {
+  since: number; // 开始统计的时间
+  counters: Record<string, number>;
+  histograms: Record<string, NativeLatencyStats>;
+}
+
+/**
+ * 应用元数据加载统计：各字段成功解析的应用数量
+ */
+export interface AppMetadataSummary {
+  total: number;
+  version: number;
+  label: number;
+  icon: number;
+  elapsedMs: number;
+}
+
+export interface InstalledAppsDelta {
+  full: boolean; // 令牌为空或失效，added 中为全部已安装应用，需要全量同步
+  token: string; // 下一次调用使用的令牌
+  added: AppInfo[];
+  updated: AppInfo[];
+  removed: string[]; // 已卸载应用的包名
+}
+
+/**
+ * 事件来源：system 为系统 UsageStatsManager（默认），journal 为原生事件日志
+ */
+export type AppUsageEventSource = 'system' | 'journal';
+
+/**
+ * 原生事件过滤条件
+ * packageNames 只返回这些应用的事件，excludePackageNames 排除这些应用（优先于 packageNames）
+ * eventTypes 默认为 ACTIVITY_RESUMED 和 ACTIVITY_PAUSED
+ */
+export interface AppUsageEventFilter {
+  packageNames?: string[];
+  excludePackageNames?: string[];
+  eventTypes?: AppUsageEventTypeName[];
+}
+
+export interface AppUsageQueryEventsOptions extends AppUsageEventFilter, AppUsageRequestOptions {
+  startTime: number;
+  endTime: number;
+  pageSize?: number;
+  cursor?: string;
+}
+
+/**
+ * 紧凑格式的事件数据
+ * data 为 base64 编码的字节流，每个事件一行：
+ * [事件类型 1 字节][包名索引 varint][类名索引+1 varint][时间戳增量 zigzag varint]
+ */
+export interface AppUsageCompactEvents {
+  version: number;
+  count: number;
+  baseTimestamp: number;
+  packages: string[];
+  classes: string[];
+  data: string;
 }
 
+/**
+ * 可以查询的事件类型，数值与 android.app.usage.UsageEvents.Event 一致
+ */
+export type AppUsageEventTypeName =
+  | 'ACTIVITY_RESUMED' // 1
+  | 'ACTIVITY_PAUSED' // 2
+  | 'SCREEN_INTERACTIVE' // 15 屏幕点亮
+  | 'SCREEN_NON_INTERACTIVE' // 16 屏幕熄灭
+  | 'KEYGUARD_SHOWN' // 17 锁屏显示
+  | 'KEYGUARD_HIDDEN' // 18 解锁
+  | 'FOREGROUND_SERVICE_START' // 19
+  | 'FOREGROUND_SERVICE_STOP'; // 20
+
 export interface AppUsageEvent {
   packageName: string;
   className: string;
   timestamp: number;
-  eventType: 'ACTIVITY_RESUMED' | 'ACTIVITY_PAUSED';
+  eventType: AppUsageEventTypeName;
+}
+
+export type AppUsageEventField = keyof AppUsageEvent;
+
+export interface AppUsageEventBatch {
+  streamId: string;
+  batchIndex: number;
+  events: AppUsageEvent[];
+  done: boolean; // 最后一批
+}
+
+/**
+ * 当前前台应用，没有应用在前台（例如熄屏）时不返回 packageName
+ */
+export interface AppUsageForegroundState {
+  packageName?: string;
+  since: number; // 进入该状态的时间
+}
+
+export interface AppUsageForegroundChange extends AppUsageForegroundState {
+  previousPackageName?: string;
+}
+
+export interface AppUsageForegroundTick {
+  timestamp: number;
+  durations: Record<string, number>; // 包名 -> 自上次推送以来新增的前台时长（毫秒）
+}
+
+export interface AppUsageBackfillBatch {
+  streamId: string;
+  batchIndex: number;
+  sliceStart: number;
+  sliceEnd: number;
+  compact: AppUsageCompactEvents; // 该分片的前台事件，使用 decodeCompactEvents 解码
+  sessions: AppUsageNativeSession[]; // 该分片内结束的会话
+  done: boolean; // 最后一批
+}
+
+export interface AppUsageBackfillProgress {
+  streamId: string;
+  completedSlices: number;
+  totalSlices: number;
+  sliceStart: number;
+  sliceEnd: number;
+  eventCount: number; // 该分片的事件数（含非前台事件）
+}
+
+export interface AppUsageNativeSession {
+  packageName: string;
+  startTime: number;
+  endTime: number;
+  duration: number;
+  clippedStart: boolean; // 会话开始于查询范围之前，startTime 为范围起点
+  clippedEnd: boolean; // 查询范围结束时会话仍未结束，endTime 为范围终点
+}
+
+export interface AppUsageHourlyAggregates {
+  startTime: number;
+  endTime: number;
+  totalDuration: number;
+  hours: {
+    hour: number; // 本地时间的小时 (0-23)
+    hourStart: number;
+    totalDuration: number;
+    apps: { packageName: string; totalDuration: number; usageCount: number }[];
+  }[];
+  apps: {
+    packageName: string;
+    totalDuration: number;
+    launchCount: number;
+    lastUsed: number;
+  }[];
+}
+
+export interface AppUsageRollupDay extends AppUsageHourlyAggregates {
+  date: string; // YYYY-MM-DD
 }
 
 export interface AppInfo {
@@ -44,5 +396,88 @@ export interface AppInfo {
   firstInstallTime: number;
   lastUpdateTime: number;
   isSystemApp: boolean;
-  icon?: string; // Base64 编码的图标
+  icon?: string; // Base64 编码的图标，或可直接在 WebView 中加载的图标地址
+  iconUri?: string; // iconMode 为 file 时返回的磁盘缓存图标地址 (file://)
+}
+
+/**
+ * 图标返回方式
+ * base64: 在 icon 中返回 base64 data URI（默认）
+ * file: 图标写入磁盘缓存，只有应用更新后才重新渲染，在 iconUri 中返回文件地址
+ */
+export type AppIconMode = 'base64' | 'file';
+
+/**
+ * 图标编码格式：webp 为有损 WebP（体积最小），webp_lossless 为无损 WebP
+ */
+export type AppIconFormat = 'png' | 'webp' | 'webp_lossless';
+
+/**
+ * 图标渲染参数，图标直接绘制到 iconSize 边长（像素，默认原始尺寸，最大 512）
+ * iconQuality 只对有损 WebP 有效（0-100，默认 80）
+ */
+export interface AppIconOptions {
+  iconSize?: number;
+  iconFormat?: AppIconFormat;
+  iconQuality?: number;
+}
+
+/**
+ * 展示使用记录时需要的应用信息
+ */
+export type AppDisplayInfo = Pick<AppInfo, 'appName' | 'icon'>;
+
+const COMPACT_EVENT_TYPES: { [code: number]: AppUsageEvent['eventType'] } = {
+  1: 'ACTIVITY_RESUMED',
+  2: 'ACTIVITY_PAUSED',
+  15: 'SCREEN_INTERACTIVE',
+  16: 'SCREEN_NON_INTERACTIVE',
+  17: 'KEYGUARD_SHOWN',
+  18: 'KEYGUARD_HIDDEN',
+  19: 'FOREGROUND_SERVICE_START',
+  20: 'FOREGROUND_SERVICE_STOP',
+};
+
+/**
+ * 解码紧凑格式的事件数据
+ */
+export function decodeCompactEvents(compact: AppUsageCompactEvents): AppUsageEvent[] {
+  const binary = atob(compact.data);
+  const bytes = new Uint8Array(binary.length);
+  for (let i = 0; i < binary.length; i++) {
+    bytes[i] = binary.charCodeAt(i);
+  }
+
+  let offset = 0;
+  // 使用乘法而不是位运算，避免超过 32 位时溢出
+  const readVarint = (): number => {
+    let value = 0;
+    let scale = 1;
+    let byte: number;
+    do {
+      byte = bytes[offset++];
+      value += (byte & 0x7f) * scale;
+      scale *= 128;
+    } while (byte & 0x80);
+    return value;
+  };
+
+  const events: AppUsageEvent[] = new Array(compact.count);
+  let timestamp = compact.baseTimestamp;
+  for (let i = 0; i < compact.count; i++) {
+    const typeCode = bytes[offset++];
+    const packageIndex = readVarint();
+    const classIndex = readVarint();
+    const zigzag = readVarint();
+    // zigzag 解码
+    timestamp += zigzag % 2 === 0 ? zigzag / 2 : -(zigzag + 1) / 2;
+
+    events[i] = {
+      packageName: compact.packages[packageIndex],
+      className: classIndex === 0 ? '' : compact.classes[classIndex - 1],
+      timestamp,
+      eventType: COMPACT_EVENT_TYPES[typeCode],
+    };
+  }
+  return events;
 }